@@ -0,0 +1,88 @@
+package example.com.sunshine;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import example.com.sunshine.data.DisplayRowCache;
+import example.com.sunshine.data.WeatherDisplayRow;
+import example.com.sunshine.util.SunshineDateUtils;
+import example.com.sunshine.util.SunshineWeatherUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the cost of binding a forecast row from the materialized display rows with formatting
+ * it on the fly, in time and in allocations.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DisplayRowBindBenchmark {
+
+    private static final String TAG = DisplayRowBindBenchmark.class.getSimpleName();
+    private static final int DAYS = 14;
+    private static final int BINDS = 20000;
+    private static final int[] WEATHER_IDS = {800, 801, 802, 500, 501, 211, 600, 741};
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void bind_fromCacheIsCheaperThanFormatting() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        long startDay = SunshineDateUtils.normalizeDate(
+                SunshineDateUtils.getUTCDateFromLocal(System.currentTimeMillis()));
+
+        WeatherDisplayRow[] materialized = new WeatherDisplayRow[DAYS];
+
+        for (int i = 0; i < DAYS; i++) {
+            materialized[i] = WeatherDisplayRow.materialize(context, startDay + i * SunshineDateUtils.DAY_IN_MILLIS,
+                    WEATHER_IDS[i % WEATHER_IDS.length], 20 + i, 10 + i);
+        }
+
+        DisplayRowCache cache = new DisplayRowCache();
+        cache.store(context, materialized);
+
+        int checksum = 0;
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        long begin = System.nanoTime();
+
+        for (int bind = 0; bind < BINDS; bind++) {
+            WeatherDisplayRow row = materialized[bind % DAYS];
+            String date = SunshineDateUtils.getFriendlyDateString(context, row.getDate(), false);
+            String condition = SunshineWeatherUtils.getStringForWeatherCondition(context, row.getWeatherId());
+            String highLow = SunshineWeatherUtils.formatHighLow(context, row.getHigh(), row.getLow());
+            int icon = SunshineWeatherUtils.getIconResourceForWeatherCondition(row.getWeatherId());
+            checksum += date.length() + condition.length() + highLow.length() + icon;
+        }
+
+        long formattingNanos = System.nanoTime() - begin;
+        int formattingAllocations = Debug.getThreadAllocCount();
+
+        Debug.resetThreadAllocCount();
+        begin = System.nanoTime();
+        WeatherDisplayRow[] rows = cache.getRows(context);
+
+        for (int bind = 0; bind < BINDS; bind++) {
+            WeatherDisplayRow row = rows[bind % DAYS];
+            checksum -= row.getFriendlyDate().length() + row.getCondition().length()
+                    + row.getHighLow().length() + row.getIconResourceId();
+        }
+
+        long cachedNanos = System.nanoTime() - begin;
+        int cachedAllocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, String.format("%d binds: formatting %.2fus/%d allocs per bind, cached %.3fus/%d allocs total",
+                BINDS, formattingNanos / 1e3 / BINDS, formattingAllocations / BINDS,
+                cachedNanos / 1e3 / BINDS, cachedAllocations));
+
+        assertEquals(0, checksum);
+        assertTrue(cachedNanos < formattingNanos);
+        assertTrue(cachedAllocations < formattingAllocations);
+    }
+}
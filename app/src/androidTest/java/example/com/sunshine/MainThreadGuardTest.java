@@ -0,0 +1,142 @@
+package example.com.sunshine;
+
+import android.content.Context;
+import android.os.NetworkOnMainThreadException;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import example.com.sunshine.data.ForecastHistory;
+import example.com.sunshine.util.MainThreadGuard;
+import example.com.sunshine.util.NetworkUtils;
+import example.com.sunshine.util.OpenWeatherJsonUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fails when a guarded entry point (network, JSON parsing, storage) runs on the main looper,
+ * either while the app starts or when called from the main thread directly. The guard is enabled
+ * by the application itself in debug builds.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadGuardTest {
+
+    private static final String FORECAST_JSON = "{\"cod\":\"200\",\"list\":[{\"temp\":{\"min\":8.6,\"max\":13.5},"
+            + "\"weather\":[{\"id\":500,\"main\":\"Rain\"}]}]}";
+
+    /* Application.onCreate ran before any test, so its violations are captured once up front */
+    private static List<String> applicationEntryPoints;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class, false, false);
+
+    @BeforeClass
+    public static void captureApplicationViolations() {
+        applicationEntryPoints = getMainThreadEntryPoints();
+    }
+
+    @After
+    public void tearDown() {
+        MainThreadGuard.setFailOnMainThread(false);
+        MainThreadGuard.clear();
+    }
+
+    @Test
+    public void appStartup_runsNoEntryPointOnMainLooper() {
+        assertEquals(new ArrayList<String>(), applicationEntryPoints);
+
+        MainThreadGuard.clear();
+        MainThreadGuard.setFailOnMainThread(true);
+
+        activityRule.launchActivity(null);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(new ArrayList<String>(), getMainThreadEntryPoints());
+    }
+
+    @Test
+    public void entryPoints_areReportedOnMainLooper() throws Exception {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        ByteArrayOutputStream history = new ByteArrayOutputStream();
+        new ForecastHistory().writeTo(history);
+        final byte[] historyBytes = history.toByteArray();
+        final Exception[] networkFailure = new Exception[1];
+        MainThreadGuard.clear();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OpenWeatherJsonUtils.getSimpleWeatherStringsFromJson(context, FORECAST_JSON);
+                    OpenWeatherJsonUtils.getDisplayRowsFromJson(context, FORECAST_JSON);
+                    OpenWeatherJsonUtils.getFullWeatherDataFromJson(context, FORECAST_JSON);
+                    ForecastHistory.readFrom(new ByteArrayInputStream(historyBytes));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+
+                try {
+                    NetworkUtils.getResponseFromHttpUrl(new URL("http://127.0.0.1:1/"));
+                } catch (Exception e) {
+                    networkFailure[0] = e;
+                }
+            }
+        });
+
+        /* Debug builds must be as strict as release, where the platform throws on connect */
+        assertTrue(networkFailure[0] instanceof NetworkOnMainThreadException);
+
+        List<String> entryPoints = getMainThreadEntryPoints();
+
+        assertTrue(entryPoints.contains("OpenWeatherJsonUtils.getSimpleWeatherStringsFromJson"));
+        assertTrue(entryPoints.contains("OpenWeatherJsonUtils.getDisplayRowsFromJson"));
+        assertTrue(entryPoints.contains("OpenWeatherJsonUtils.getFullWeatherDataFromJson"));
+        assertTrue(entryPoints.contains("ForecastHistory.readFrom"));
+        assertTrue(entryPoints.contains("NetworkUtils.getResponseFromHttpUrl"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failOnMainThread_throws() throws Throwable {
+        MainThreadGuard.setFailOnMainThread(true);
+        final Throwable[] thrown = new Throwable[1];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OpenWeatherJsonUtils.getFullWeatherDataFromJson(null, FORECAST_JSON);
+                } catch (Throwable e) {
+                    thrown[0] = e;
+                }
+            }
+        });
+
+        if (thrown[0] != null) {
+            throw thrown[0];
+        }
+    }
+
+    private static List<String> getMainThreadEntryPoints() {
+        List<String> entryPoints = new ArrayList<>();
+
+        for (MainThreadGuard.Violation violation : MainThreadGuard.getViolations()) {
+            if (MainThreadGuard.Violation.KIND_MAIN_THREAD.equals(violation.getKind())) {
+                entryPoints.add(violation.getEntryPoint());
+            }
+        }
+
+        return entryPoints;
+    }
+}
@@ -0,0 +1,63 @@
+package example.com.sunshine;
+
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Guards the cold start: fails when the initializers running before the first frame exceed their
+ * budget, and logs the time to first frame of this build.
+ *
+ * To compare with and without the orchestrator, run the tests once as usual and once with
+ * {@code ./gradlew connectedDebugAndroidTest -PeagerStartup}, then compare the logged times. Both
+ * include the instrumentation's own setup, so only the difference between them is meaningful.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupTimeTest {
+
+    private static final String TAG = StartupTimeTest.class.getSimpleName();
+    private static final long MAIN_THREAD_BUDGET_MILLIS = 50;
+    private static final long FIRST_FRAME_TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void firstFrame_isDrawnAndLogged() throws Exception {
+        SunshineApplication application = awaitFirstFrame();
+
+        Log.i(TAG, "Time to first frame " + application.getTimeToFirstFrame() + "ms, deferred startup "
+                + BuildConfig.DEFERRED_STARTUP + ", " + application.getStartup().getReport());
+
+        assertTrue("First frame was never drawn", application.getTimeToFirstFrame() >= 0);
+    }
+
+    @Test
+    public void firstFrame_staysWithinMainThreadBudget() throws Exception {
+        /* An eager build runs everything on the main thread on purpose */
+        assumeTrue(BuildConfig.DEFERRED_STARTUP);
+
+        SunshineApplication application = awaitFirstFrame();
+
+        assertTrue("Main thread initializers took " + application.getStartup().getMainThreadMillis() + "ms",
+                application.getStartup().getMainThreadMillis() <= MAIN_THREAD_BUDGET_MILLIS);
+    }
+
+    private SunshineApplication awaitFirstFrame() throws InterruptedException {
+        SunshineApplication application = (SunshineApplication) activityRule.getActivity().getApplication();
+        long deadline = System.currentTimeMillis() + FIRST_FRAME_TIMEOUT_MILLIS;
+
+        while (application.getTimeToFirstFrame() < 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        return application;
+    }
+}
@@ -0,0 +1,114 @@
+package example.com.sunshine.data;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import example.com.sunshine.util.SunshineDateUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that cached display rows are formatted again when, and only when, one of the settings
+ * they were formatted with changes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DisplayRowCacheTest {
+
+    private Context context;
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private long now;
+    private DisplayRowCache cache;
+    private WeatherDisplayRow[] stored;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        now = System.currentTimeMillis();
+
+        long today = SunshineDateUtils.normalizeDate(SunshineDateUtils.getUTCDateFromLocal(now));
+        stored = new WeatherDisplayRow[]{
+                WeatherDisplayRow.materialize(context, today, 800, 21, 12),
+                WeatherDisplayRow.materialize(context, today + SunshineDateUtils.DAY_IN_MILLIS, 500, 18, 9)};
+
+        cache = new DisplayRowCache();
+        cache.store(stored, DisplayRowCache.DisplayKey.current(context, now));
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void getRows_keepsRowsWhileNothingChanges() {
+        assertSame(stored, cache.getRows(context));
+        assertSame(stored, cache.getRows(context));
+        assertSame(stored, cache.getRows(context, DisplayRowCache.DisplayKey.current(context, now)));
+    }
+
+    @Test
+    public void getRows_rebuildsWhenLocaleChanges() {
+        Locale.setDefault(Locale.GERMANY.equals(defaultLocale) ? Locale.FRANCE : Locale.GERMANY);
+
+        assertRebuiltOnce(DisplayRowCache.DisplayKey.current(context, now));
+    }
+
+    @Test
+    public void getRows_rebuildsWhenTimeZoneChanges() {
+        TimeZone.setDefault(TimeZone.getTimeZone(
+                "Pacific/Kiritimati".equals(defaultTimeZone.getID()) ? "Pacific/Pago_Pago" : "Pacific/Kiritimati"));
+
+        assertRebuiltOnce(DisplayRowCache.DisplayKey.current(context, now));
+    }
+
+    @Test
+    public void getRows_rebuildsWhenUnitsChange() {
+        DisplayRowCache.DisplayKey key = DisplayRowCache.DisplayKey.current(context, now);
+
+        assertRebuiltOnce(new DisplayRowCache.DisplayKey(key.locale, !key.metric, key.timeZoneId, key.dayNumber));
+    }
+
+    @Test
+    public void getRows_rebuildsWhenDayChanges() {
+        assertRebuiltOnce(DisplayRowCache.DisplayKey.current(context, now + SunshineDateUtils.DAY_IN_MILLIS));
+    }
+
+    @Test
+    public void displayKey_staysTheSameWithinADay() {
+        long midnight = SunshineDateUtils.getLocalDateFromUTC(
+                SunshineDateUtils.normalizeDate(SunshineDateUtils.getUTCDateFromLocal(now)));
+
+        assertEquals(DisplayRowCache.DisplayKey.current(context, midnight),
+                DisplayRowCache.DisplayKey.current(context, midnight + 12 * SunshineDateUtils.HOUR_IN_MILLIS));
+        assertNotEquals(DisplayRowCache.DisplayKey.current(context, midnight),
+                DisplayRowCache.DisplayKey.current(context, midnight - 1));
+    }
+
+    private void assertRebuiltOnce(DisplayRowCache.DisplayKey changedKey) {
+        WeatherDisplayRow[] rebuilt = cache.getRows(context, changedKey);
+
+        assertNotSame(stored, rebuilt);
+        assertEquals(stored.length, rebuilt.length);
+
+        for (int i = 0; i < stored.length; i++) {
+            assertEquals(stored[i].getDate(), rebuilt[i].getDate());
+            assertEquals(stored[i].getWeatherId(), rebuilt[i].getWeatherId());
+        }
+
+        /* Formatted once for the new settings, then served as they are */
+        assertSame(rebuilt, cache.getRows(context, changedKey));
+    }
+}
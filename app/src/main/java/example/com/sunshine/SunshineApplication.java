@@ -0,0 +1,92 @@
+package example.com.sunshine;
+
+import android.app.Application;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import example.com.sunshine.startup.AppStartup;
+import example.com.sunshine.startup.CityIndexInitializer;
+import example.com.sunshine.startup.DisplayRowCacheInitializer;
+import example.com.sunshine.startup.ForecastHistoryInitializer;
+import example.com.sunshine.startup.StrictModeInitializer;
+
+public class SunshineApplication extends Application {
+
+    private static final String TAG = SunshineApplication.class.getSimpleName();
+
+    /* Loaded with the class, which is as close to process start as app code gets on API 15 */
+    private static final long PROCESS_START_UPTIME = SystemClock.uptimeMillis();
+
+    private AppStartup startup;
+    private ExecutorService startupExecutor;
+    private volatile long timeToFirstFrame = -1;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        startup = new AppStartup(this);
+        registerInitializers(startup);
+
+        if (BuildConfig.DEFERRED_STARTUP) {
+            startupExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "startup");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+            startup.start(startupExecutor);
+        } else {
+            startup.startEagerly();
+        }
+    }
+
+    /**
+     * Registers every application level initializer. New dependencies belong here rather than in
+     * an activity's onCreate, and should only use {@code MAIN} if the first frame needs them.
+     *
+     * @param startup The orchestrator to register with
+     */
+    private static void registerInitializers(AppStartup startup) {
+        if (BuildConfig.DEBUG) {
+            startup.register(new StrictModeInitializer());
+        }
+
+        startup.register(new ForecastHistoryInitializer());
+        startup.register(new DisplayRowCacheInitializer());
+        startup.register(new CityIndexInitializer());
+    }
+
+    /**
+     * @return The orchestrator holding every application level dependency
+     */
+    public AppStartup getStartup() {
+        return startup;
+    }
+
+    /**
+     * Records the time from process start to the first frame. Only the first call counts.
+     */
+    public void reportFirstFrame() {
+        if (timeToFirstFrame >= 0) {
+            return;
+        }
+
+        timeToFirstFrame = SystemClock.uptimeMillis() - PROCESS_START_UPTIME;
+        Log.i(TAG, "Time to first frame: " + timeToFirstFrame + "ms, deferred startup "
+                + BuildConfig.DEFERRED_STARTUP + ", " + startup.getReport());
+    }
+
+    /**
+     * @return Milliseconds from process start to the first frame, or -1 if not drawn yet
+     */
+    public long getTimeToFirstFrame() {
+        return timeToFirstFrame;
+    }
+}
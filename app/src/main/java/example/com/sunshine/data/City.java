@@ -0,0 +1,42 @@
+package example.com.sunshine.data;
+
+/**
+ * A place name from the bundled city list, with the coordinates to query the weather server with,
+ * see {@link example.com.sunshine.util.NetworkUtils#buildUrl(double, double)}.
+ */
+public class City {
+
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+    private final int population;
+
+    /**
+     * @param name Display name, e.g "Mountain View, US"
+     * @param latitude The latitude of the city
+     * @param longitude The longitude of the city
+     * @param population Used to rank matches, bigger places first
+     */
+    public City(String name, double latitude, double longitude, int population) {
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.population = population;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+}
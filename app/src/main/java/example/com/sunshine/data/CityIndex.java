@@ -0,0 +1,456 @@
+package example.com.sunshine.data;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prefix index over the bundled city list, used to autocomplete the location setting without a
+ * round-trip to the weather server.
+ *
+ * The index is meant to be memory-mapped, so nothing is parsed when it is opened. Layout, big
+ * endian:
+ *
+ * <pre>
+ * int    magic, int version, int count, int topCount
+ * count  entries sorted by key: int recordOffset, float lat, float lon, int population
+ * top    long runs sorted by prefix: int firstEntry, byte prefixLength, byte matchCount, int[10] entries
+ * ...    records: byte keyLength, key (normalized, UTF-8), byte nameLength, name (UTF-8)
+ * </pre>
+ *
+ * A query binary searches the entries for the first key starting with the normalized prefix and
+ * scans the matching run, keeping the most populated places. Short prefixes such as "s" match a
+ * large part of the list, so every prefix matching more than {@link #MAX_SCAN} entries has its
+ * most populated places stored ready-made instead, and no query scans more than that.
+ */
+public class CityIndex {
+
+    private static final int MAGIC = 0x43494458;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 16;
+    private static final int TOP_K = 10;
+    private static final int TOP_ENTRY_SIZE = 6 + 4 * TOP_K;
+    private static final int MAX_SCAN = 256;
+    private static final int MAX_FIELD_LENGTH = 255;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int topCount;
+
+    /**
+     * @param buffer The index, typically a read-only mapping of the bundled file
+     * @throws IOException If the buffer does not hold a city index
+     */
+    public CityIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+        if (this.buffer.capacity() < HEADER_SIZE
+                || this.buffer.getInt(0) != MAGIC
+                || this.buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a city index");
+        }
+
+        this.count = this.buffer.getInt(8);
+        this.topCount = this.buffer.getInt(12);
+    }
+
+    /**
+     * @return Number of cities in the index
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the most populated cities whose name starts with the given text. Case and accents
+     * are ignored. Up to 10 matches are read ready-made or from a short scan; larger limits scan
+     * every match.
+     *
+     * @param prefix Text typed so far
+     * @param limit Maximum number of matches
+     * @return Matches, most populated first
+     */
+    public List<City> query(String prefix, int limit) {
+        byte[] key = normalize(prefix).getBytes(UTF_8);
+
+        if (key.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<City> matches = new ArrayList<>(limit);
+
+        int top = limit <= TOP_K ? findTop(key) : -1;
+
+        if (top >= 0) {
+            int offset = topOffset(top);
+            int found = Math.min(limit, buffer.get(offset + 5) & 0xFF);
+
+            for (int i = 0; i < found; i++) {
+                matches.add(readCity(buffer.getInt(offset + 6 + 4 * i)));
+            }
+
+            return matches;
+        }
+
+        int[] best = new int[limit];
+        int[] bestPopulation = new int[limit];
+        int found = 0;
+
+        for (int entry = lowerBound(key); entry < count && startsWith(entry, key); entry++) {
+            found = insertTop(best, bestPopulation, found, entry, buffer.getInt(entryOffset(entry) + 12));
+        }
+
+        for (int i = 0; i < found; i++) {
+            matches.add(readCity(best[i]));
+        }
+
+        return matches;
+    }
+
+    /**
+     * Writes an index for the given cities, in the format read by this class.
+     *
+     * @param cities Cities to index, in any order
+     * @param outputStream Stream to write to; it is not closed
+     * @throws IOException Related to writing to the stream
+     */
+    public static void write(List<City> cities, OutputStream outputStream) throws IOException {
+        final List<byte[][]> records = new ArrayList<>(cities.size());
+        List<Integer> order = new ArrayList<>(cities.size());
+
+        for (City city : cities) {
+            byte[] key = truncate(normalize(city.getName()).getBytes(UTF_8));
+            byte[] name = truncate(city.getName().getBytes(UTF_8));
+            order.add(records.size());
+            records.add(new byte[][]{key, name});
+        }
+
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return compareBytes(records.get(first)[0], records.get(second)[0]);
+            }
+        });
+
+        List<int[]> tops = findLongRuns(cities, records, order);
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(order.size());
+        out.writeInt(tops.size());
+
+        int recordOffset = HEADER_SIZE + order.size() * ENTRY_SIZE + tops.size() * TOP_ENTRY_SIZE;
+
+        for (int index : order) {
+            City city = cities.get(index);
+            byte[][] record = records.get(index);
+
+            out.writeInt(recordOffset);
+            out.writeFloat((float) city.getLatitude());
+            out.writeFloat((float) city.getLongitude());
+            out.writeInt(city.getPopulation());
+
+            recordOffset += 2 + record[0].length + record[1].length;
+        }
+
+        for (int[] top : tops) {
+            out.writeInt(top[0]);
+            out.writeByte(top[1]);
+            out.writeByte(top[2]);
+
+            for (int i = 0; i < TOP_K; i++) {
+                out.writeInt(top[3 + i]);
+            }
+        }
+
+        for (int index : order) {
+            byte[][] record = records.get(index);
+
+            out.writeByte(record[0].length);
+            out.write(record[0]);
+            out.writeByte(record[1].length);
+            out.write(record[1]);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Lowercases the text, strips accents and collapses everything that is not a letter or a
+     * digit into single spaces, so "São Paulo" and "sao  paulo" share a key.
+     *
+     * @param text Free text
+     * @return The normalized key
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.US), Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && builder.length() > 0) {
+                    builder.append(' ');
+                }
+
+                builder.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+
+        /* Keep a trailing separator so "new " no longer matches "newark" */
+        if (pendingSpace && builder.length() > 0 && Character.isWhitespace(text.charAt(text.length() - 1))) {
+            builder.append(' ');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Finds every key prefix matching more than {@link #MAX_SCAN} entries, along with its most
+     * populated entries. Runs are walked in key order, as a query scans them, so both give the
+     * same matches.
+     *
+     * @return One array per prefix, sorted by prefix: first entry, prefix length, match count and
+     * the {@link #TOP_K} entries
+     */
+    private static List<int[]> findLongRuns(List<City> cities, List<byte[][]> records, List<Integer> order) {
+        final List<byte[]> keys = new ArrayList<>(order.size());
+        List<int[]> tops = new ArrayList<>();
+        int[] runStart = new int[MAX_FIELD_LENGTH + 1];
+        int[] runFound = new int[MAX_FIELD_LENGTH + 1];
+        int[][] runBest = new int[MAX_FIELD_LENGTH + 1][TOP_K];
+        int[][] runPopulation = new int[MAX_FIELD_LENGTH + 1][TOP_K];
+        byte[] previous = new byte[0];
+
+        for (int index : order) {
+            keys.add(records.get(index)[0]);
+        }
+
+        /* One step past the last entry, with an empty key, closes every run still open */
+        for (int entry = 0; entry <= keys.size(); entry++) {
+            byte[] key = entry < keys.size() ? keys.get(entry) : new byte[0];
+            int common = 0;
+
+            while (common < Math.min(previous.length, key.length) && previous[common] == key[common]) {
+                common++;
+            }
+
+            for (int length = previous.length; length > common; length--) {
+                if (entry - runStart[length] > MAX_SCAN) {
+                    int[] top = new int[3 + TOP_K];
+                    top[0] = runStart[length];
+                    top[1] = length;
+                    top[2] = runFound[length];
+                    System.arraycopy(runBest[length], 0, top, 3, TOP_K);
+                    tops.add(top);
+                }
+            }
+
+            for (int length = common + 1; length <= key.length; length++) {
+                runStart[length] = entry;
+                runFound[length] = 0;
+            }
+
+            if (entry < keys.size()) {
+                int population = cities.get(order.get(entry)).getPopulation();
+
+                for (int length = 1; length <= key.length; length++) {
+                    runFound[length] = insertTop(runBest[length], runPopulation[length], runFound[length], entry, population);
+                }
+            }
+
+            previous = key;
+        }
+
+        Collections.sort(tops, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] first, int[] second) {
+                return compareBytes(Arrays.copyOf(keys.get(first[0]), first[1]),
+                        Arrays.copyOf(keys.get(second[0]), second[1]));
+            }
+        });
+
+        return tops;
+    }
+
+    /**
+     * Inserts an entry into a top-k array sorted by population, most populated first. On equal
+     * populations the entry inserted first stays ahead.
+     *
+     * @return The number of entries held afterwards
+     */
+    private static int insertTop(int[] best, int[] bestPopulation, int found, int entry, int population) {
+        int limit = best.length;
+
+        if (found == limit && population <= bestPopulation[limit - 1]) {
+            return found;
+        }
+
+        int position = found < limit ? found++ : limit - 1;
+
+        while (position > 0 && bestPopulation[position - 1] < population) {
+            best[position] = best[position - 1];
+            bestPopulation[position] = bestPopulation[position - 1];
+            position--;
+        }
+
+        best[position] = entry;
+        bestPopulation[position] = population;
+        return found;
+    }
+
+    /**
+     * @return The stored run for exactly this prefix, or -1 if it matches few enough entries to scan
+     */
+    private int findTop(byte[] key) {
+        int low = 0;
+        int high = topCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = topOffset(middle);
+            int difference = comparePrefix(buffer.getInt(offset), buffer.get(offset + 4) & 0xFF, key);
+
+            if (difference < 0) {
+                low = middle + 1;
+            } else if (difference > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    private int topOffset(int top) {
+        return entryOffset(count) + top * TOP_ENTRY_SIZE;
+    }
+
+    private City readCity(int entry) {
+        int offset = entryOffset(entry);
+        int recordOffset = buffer.getInt(offset);
+        int keyLength = buffer.get(recordOffset) & 0xFF;
+        int nameOffset = recordOffset + 1 + keyLength;
+        byte[] name = new byte[buffer.get(nameOffset) & 0xFF];
+
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(nameOffset + 1 + i);
+        }
+
+        return new City(new String(name, UTF_8),
+                buffer.getFloat(offset + 4),
+                buffer.getFloat(offset + 8),
+                buffer.getInt(offset + 12));
+    }
+
+    /**
+     * @return The first entry whose key is greater than or equal to the given key
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (compareKey(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private int compareKey(int entry, byte[] key) {
+        int recordOffset = buffer.getInt(entryOffset(entry));
+
+        return comparePrefix(entry, buffer.get(recordOffset) & 0xFF, key);
+    }
+
+    /**
+     * Compares the first {@code length} bytes of an entry's key with the given key.
+     */
+    private int comparePrefix(int entry, int length, byte[] key) {
+        int recordOffset = buffer.getInt(entryOffset(entry));
+        int common = Math.min(length, key.length);
+
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(recordOffset + 1 + i) & 0xFF) - (key[i] & 0xFF);
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return length - key.length;
+    }
+
+    private boolean startsWith(int entry, byte[] prefix) {
+        int recordOffset = buffer.getInt(entryOffset(entry));
+
+        if ((buffer.get(recordOffset) & 0xFF) < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(recordOffset + 1 + i) != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int entryOffset(int entry) {
+        return HEADER_SIZE + entry * ENTRY_SIZE;
+    }
+
+    private static int compareBytes(byte[] first, byte[] second) {
+        int common = Math.min(first.length, second.length);
+
+        for (int i = 0; i < common; i++) {
+            int difference = (first[i] & 0xFF) - (second[i] & 0xFF);
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return first.length - second.length;
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        if (bytes.length <= MAX_FIELD_LENGTH) {
+            return bytes;
+        }
+
+        byte[] truncated = new byte[MAX_FIELD_LENGTH];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_FIELD_LENGTH);
+        return truncated;
+    }
+}
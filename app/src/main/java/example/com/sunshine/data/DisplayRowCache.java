@@ -0,0 +1,108 @@
+package example.com.sunshine.data;
+
+import android.content.Context;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import example.com.sunshine.util.SunshineDateUtils;
+
+/**
+ * Holds the display rows of the latest refresh together with the settings they were formatted
+ * with. Rows are formatted again, once, when the locale, units, time zone or current day no longer
+ * match, since any of those changes the friendly date or the temperature strings.
+ */
+public class DisplayRowCache {
+
+    private WeatherDisplayRow[] rows = new WeatherDisplayRow[0];
+    private DisplayKey key;
+
+    /**
+     * Stores the rows of a refresh. They must have been materialized for the current settings.
+     *
+     * @param context Context used to read the current settings
+     * @param rows The rows built by the sync
+     */
+    public void store(Context context, WeatherDisplayRow[] rows) {
+        store(rows, DisplayKey.current(context, System.currentTimeMillis()));
+    }
+
+    synchronized void store(WeatherDisplayRow[] rows, DisplayKey key) {
+        this.rows = rows;
+        this.key = key;
+    }
+
+    /**
+     * Returns the rows of the latest refresh, formatting them again first if the settings changed.
+     *
+     * @param context Context used to read the current settings and resources
+     * @return The display-ready rows, empty if nothing was stored yet
+     */
+    public WeatherDisplayRow[] getRows(Context context) {
+        return getRows(context, DisplayKey.current(context, System.currentTimeMillis()));
+    }
+
+    synchronized WeatherDisplayRow[] getRows(Context context, DisplayKey currentKey) {
+        if (key != null && !key.equals(currentKey)) {
+            WeatherDisplayRow[] refreshed = new WeatherDisplayRow[rows.length];
+
+            for (int i = 0; i < rows.length; i++) {
+                refreshed[i] = rows[i].rematerialize(context);
+            }
+
+            rows = refreshed;
+            key = currentKey;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Everything a display row depends on besides its raw values.
+     */
+    static class DisplayKey {
+
+        final Locale locale;
+        final boolean metric;
+        final String timeZoneId;
+        final long dayNumber;
+
+        DisplayKey(Locale locale, boolean metric, String timeZoneId, long dayNumber) {
+            this.locale = locale;
+            this.metric = metric;
+            this.timeZoneId = timeZoneId;
+            this.dayNumber = dayNumber;
+        }
+
+        static DisplayKey current(Context context, long now) {
+            return new DisplayKey(
+                    Locale.getDefault(),
+                    SunshinePreferences.isMetric(context),
+                    TimeZone.getDefault().getID(),
+                    SunshineDateUtils.getDayNumber(now));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof DisplayKey)) {
+                return false;
+            }
+
+            DisplayKey that = (DisplayKey) other;
+
+            return metric == that.metric
+                    && dayNumber == that.dayNumber
+                    && locale.equals(that.locale)
+                    && timeZoneId.equals(that.timeZoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = locale.hashCode();
+            result = 31 * result + (metric ? 1 : 0);
+            result = 31 * result + timeZoneId.hashCode();
+            result = 31 * result + (int) (dayNumber ^ (dayNumber >>> 32));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package example.com.sunshine.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import example.com.sunshine.util.MainThreadGuard;
+import example.com.sunshine.util.SunshineDateUtils;
+
+/**
+ * Keeps every forecast ever fetched, keyed by the normalized date it is for.
+ *
+ * Forecasts are sorted by date and packed into blocks of {@link #BLOCK_SIZE} entries. Inside a
+ * block every value is stored as the zigzag varint of its difference with the previous entry, so
+ * a typical entry takes a handful of bytes. A small index keeps the first and last date of each
+ * block, which lets range queries decode only the blocks that overlap the range.
+ *
+ * A refresh only carries forecasts for its own day and later, so entries dated before the latest
+ * refresh can no longer change. Those are sealed into blocks; the rest stay pending until then.
+ */
+public class ForecastHistory {
+
+    public static final int BLOCK_SIZE = 64;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int VALUE_SCALE = 10;
+    private static final long IO_BUDGET_MILLIS = 100;
+
+    private static final Comparator<HistoricalForecast> BY_DATE = new Comparator<HistoricalForecast>() {
+        @Override
+        public int compare(HistoricalForecast first, HistoricalForecast second) {
+            if (first.getDate() != second.getDate()) {
+                return first.getDate() < second.getDate() ? -1 : 1;
+            }
+
+            if (first.getIssuedDate() != second.getIssuedDate()) {
+                return first.getIssuedDate() < second.getIssuedDate() ? -1 : 1;
+            }
+
+            return 0;
+        }
+    };
+
+    private byte[] data = new byte[1024];
+    private int dataLength;
+
+    private long[] blockFirstDates = new long[16];
+    private long[] blockLastDates = new long[16];
+    private int[] blockOffsets = new int[16];
+    private int[] blockCounts = new int[16];
+    private int blockCount;
+
+    private long tailDate;
+    private long tailHigh;
+    private long tailLow;
+    private long tailPressure;
+    private long tailHumidity;
+
+    private final List<HistoricalForecast> pending = new ArrayList<>();
+    private long sealedUntil = Long.MIN_VALUE;
+
+    /**
+     * Records the forecasts of a refresh. Forecasts dated before the refresh are sealed into
+     * compressed blocks; forecasts for dates that were already sealed are ignored. A later
+     * refresh on the same day replaces the forecasts it issued for the same dates.
+     *
+     * @param issuedDate The UTC date of the refresh, normalized with SunshineDateUtils
+     * @param forecasts The forecasts returned by that refresh
+     */
+    public synchronized void addRefresh(long issuedDate, List<HistoricalForecast> forecasts) {
+        for (HistoricalForecast forecast : forecasts) {
+            if (forecast.getDate() < sealedUntil) {
+                continue;
+            }
+
+            HistoricalForecast normalized = new HistoricalForecast(
+                    SunshineDateUtils.normalizeDate(forecast.getDate()),
+                    SunshineDateUtils.normalizeDate(issuedDate),
+                    forecast.getHigh(),
+                    forecast.getLow(),
+                    forecast.getPressure(),
+                    forecast.getHumidity());
+
+            int index = indexOfPending(normalized);
+
+            if (index < 0) {
+                pending.add(normalized);
+            } else {
+                pending.set(index, normalized);
+            }
+        }
+
+        sealBefore(SunshineDateUtils.normalizeDate(issuedDate));
+    }
+
+    /**
+     * Returns every forecast, from every refresh, for the dates between start and end.
+     *
+     * @param startDate First normalized UTC date, inclusive
+     * @param endDate Last normalized UTC date, inclusive
+     * @return The forecasts sorted by date, then by the date they were issued on
+     */
+    public synchronized List<HistoricalForecast> query(long startDate, long endDate) {
+        List<HistoricalForecast> result = new ArrayList<>();
+
+        if (endDate < startDate) {
+            return result;
+        }
+
+        int block = findFirstBlock(startDate);
+
+        while (block < blockCount && blockFirstDates[block] <= endDate) {
+            decodeBlock(block, startDate, endDate, result);
+            block++;
+        }
+
+        if (!pending.isEmpty()) {
+            int firstPending = result.size();
+
+            for (HistoricalForecast forecast : pending) {
+                if (forecast.getDate() >= startDate && forecast.getDate() <= endDate) {
+                    result.add(forecast);
+                }
+            }
+
+            Collections.sort(result.subList(firstPending, result.size()), BY_DATE);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Number of bytes used by the encoded blocks and their index
+     */
+    public synchronized int getEncodedSize() {
+        return dataLength + blockCount * (8 + 8 + 4 + 4);
+    }
+
+    /**
+     * @return Number of forecasts stored, sealed or pending
+     */
+    public synchronized int size() {
+        int size = pending.size();
+
+        for (int i = 0; i < blockCount; i++) {
+            size += blockCounts[i];
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes the history so it can be restored with {@link #readFrom(InputStream)}.
+     *
+     * @param outputStream Stream to write to; it is not closed
+     * @throws IOException Related to writing to the stream
+     */
+    public synchronized void writeTo(OutputStream outputStream) throws IOException {
+        long guard = MainThreadGuard.begin("ForecastHistory.writeTo");
+
+        try {
+            write(outputStream);
+        } finally {
+            MainThreadGuard.end("ForecastHistory.writeTo", guard, IO_BUDGET_MILLIS);
+        }
+    }
+
+    private void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sealedUntil);
+        out.writeInt(blockCount);
+
+        for (int i = 0; i < blockCount; i++) {
+            out.writeLong(blockFirstDates[i]);
+            out.writeLong(blockLastDates[i]);
+            out.writeInt(blockOffsets[i]);
+            out.writeInt(blockCounts[i]);
+        }
+
+        out.writeLong(tailDate);
+        out.writeLong(tailHigh);
+        out.writeLong(tailLow);
+        out.writeLong(tailPressure);
+        out.writeLong(tailHumidity);
+        out.writeInt(dataLength);
+        out.write(data, 0, dataLength);
+        out.writeInt(pending.size());
+
+        for (HistoricalForecast forecast : pending) {
+            out.writeLong(forecast.getDate());
+            out.writeLong(forecast.getIssuedDate());
+            out.writeDouble(forecast.getHigh());
+            out.writeDouble(forecast.getLow());
+            out.writeDouble(forecast.getPressure());
+            out.writeInt(forecast.getHumidity());
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Restores a history written with {@link #writeTo(OutputStream)}.
+     *
+     * @param inputStream Stream to read from; it is not closed
+     * @return The restored history
+     * @throws IOException Related to reading the stream, or if the format is unknown
+     */
+    public static ForecastHistory readFrom(InputStream inputStream) throws IOException {
+        long guard = MainThreadGuard.begin("ForecastHistory.readFrom");
+
+        try {
+            return read(inputStream);
+        } finally {
+            MainThreadGuard.end("ForecastHistory.readFrom", guard, IO_BUDGET_MILLIS);
+        }
+    }
+
+    private static ForecastHistory read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        int version = in.readInt();
+
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown forecast history version: " + version);
+        }
+
+        ForecastHistory history = new ForecastHistory();
+        history.sealedUntil = in.readLong();
+        history.blockCount = in.readInt();
+        history.blockFirstDates = new long[Math.max(16, history.blockCount)];
+        history.blockLastDates = new long[history.blockFirstDates.length];
+        history.blockOffsets = new int[history.blockFirstDates.length];
+        history.blockCounts = new int[history.blockFirstDates.length];
+
+        for (int i = 0; i < history.blockCount; i++) {
+            history.blockFirstDates[i] = in.readLong();
+            history.blockLastDates[i] = in.readLong();
+            history.blockOffsets[i] = in.readInt();
+            history.blockCounts[i] = in.readInt();
+        }
+
+        history.tailDate = in.readLong();
+        history.tailHigh = in.readLong();
+        history.tailLow = in.readLong();
+        history.tailPressure = in.readLong();
+        history.tailHumidity = in.readLong();
+        history.dataLength = in.readInt();
+        history.data = new byte[Math.max(1024, history.dataLength)];
+        in.readFully(history.data, 0, history.dataLength);
+
+        int pendingCount = in.readInt();
+
+        for (int i = 0; i < pendingCount; i++) {
+            history.pending.add(new HistoricalForecast(in.readLong(), in.readLong(),
+                    in.readDouble(), in.readDouble(), in.readDouble(), in.readInt()));
+        }
+
+        return history;
+    }
+
+    /**
+     * @return Index of the pending forecast for the same date and issued date, or -1
+     */
+    private int indexOfPending(HistoricalForecast forecast) {
+        for (int i = 0; i < pending.size(); i++) {
+            if (BY_DATE.compare(pending.get(i), forecast) == 0) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Moves every pending forecast dated before the given date into encoded blocks.
+     *
+     * @param date The normalized UTC date of the latest refresh
+     */
+    private void sealBefore(long date) {
+        if (date <= sealedUntil) {
+            return;
+        }
+
+        List<HistoricalForecast> sealable = new ArrayList<>();
+
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (pending.get(i).getDate() < date) {
+                sealable.add(pending.remove(i));
+            }
+        }
+
+        Collections.sort(sealable, BY_DATE);
+
+        for (HistoricalForecast forecast : sealable) {
+            encode(forecast);
+        }
+
+        sealedUntil = date;
+    }
+
+    /**
+     * Appends a forecast to the last block, or starts a new block when it is full. The first
+     * entry of a block is encoded against zero so every block can be decoded on its own.
+     */
+    private void encode(HistoricalForecast forecast) {
+        if (blockCount == 0 || blockCounts[blockCount - 1] == BLOCK_SIZE) {
+            ensureBlockCapacity();
+
+            blockFirstDates[blockCount] = forecast.getDate();
+            blockOffsets[blockCount] = dataLength;
+            blockCounts[blockCount] = 0;
+            blockCount++;
+
+            tailDate = forecast.getDate();
+            tailHigh = 0;
+            tailLow = 0;
+            tailPressure = 0;
+            tailHumidity = 0;
+        }
+
+        long high = Math.round(forecast.getHigh() * VALUE_SCALE);
+        long low = Math.round(forecast.getLow() * VALUE_SCALE);
+        long pressure = Math.round(forecast.getPressure() * VALUE_SCALE);
+        long humidity = forecast.getHumidity();
+
+        writeVarint((forecast.getDate() - tailDate) / SunshineDateUtils.DAY_IN_MILLIS);
+        writeVarint((forecast.getDate() - forecast.getIssuedDate()) / SunshineDateUtils.DAY_IN_MILLIS);
+        writeSignedVarint(high - tailHigh);
+        writeSignedVarint(low - tailLow);
+        writeSignedVarint(pressure - tailPressure);
+        writeSignedVarint(humidity - tailHumidity);
+
+        blockLastDates[blockCount - 1] = forecast.getDate();
+        blockCounts[blockCount - 1]++;
+
+        tailDate = forecast.getDate();
+        tailHigh = high;
+        tailLow = low;
+        tailPressure = pressure;
+        tailHumidity = humidity;
+    }
+
+    private void decodeBlock(int block, long startDate, long endDate, List<HistoricalForecast> result) {
+        int[] position = {blockOffsets[block]};
+        long date = blockFirstDates[block];
+        long high = 0;
+        long low = 0;
+        long pressure = 0;
+        long humidity = 0;
+
+        for (int i = 0; i < blockCounts[block]; i++) {
+            date += readVarint(position) * SunshineDateUtils.DAY_IN_MILLIS;
+            long issuedDate = date - readVarint(position) * SunshineDateUtils.DAY_IN_MILLIS;
+            high += readSignedVarint(position);
+            low += readSignedVarint(position);
+            pressure += readSignedVarint(position);
+            humidity += readSignedVarint(position);
+
+            if (date > endDate) {
+                return;
+            }
+
+            if (date >= startDate) {
+                result.add(new HistoricalForecast(date, issuedDate,
+                        (double) high / VALUE_SCALE,
+                        (double) low / VALUE_SCALE,
+                        (double) pressure / VALUE_SCALE,
+                        (int) humidity));
+            }
+        }
+    }
+
+    /**
+     * @return The first block whose last date is on or after the given date
+     */
+    private int findFirstBlock(long date) {
+        int low = 0;
+        int high = blockCount;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (blockLastDates[middle] < date) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private void ensureBlockCapacity() {
+        if (blockCount == blockFirstDates.length) {
+            int capacity = blockCount * 2;
+            blockFirstDates = Arrays.copyOf(blockFirstDates, capacity);
+            blockLastDates = Arrays.copyOf(blockLastDates, capacity);
+            blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+            blockCounts = Arrays.copyOf(blockCounts, capacity);
+        }
+    }
+
+    private void writeSignedVarint(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) {
+        if (dataLength + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+
+        while ((value & ~0x7FL) != 0) {
+            data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        data[dataLength++] = (byte) value;
+    }
+
+    private long readSignedVarint(int[] position) {
+        long value = readVarint(position);
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint(int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+
+        do {
+            current = data[position[0]++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+package example.com.sunshine.data;
+
+/**
+ * A single forecast for a day, as it was issued on a given day. The same date usually has one
+ * entry per refresh that covered it, so forecasts can be compared with what actually happened.
+ */
+public class HistoricalForecast {
+
+    private final long date;
+    private final long issuedDate;
+    private final double high;
+    private final double low;
+    private final double pressure;
+    private final int humidity;
+
+    /**
+     * @param date The normalized UTC date the forecast is for
+     * @param issuedDate The normalized UTC date the forecast was fetched on
+     * @param high High temperature, rounded to a tenth of a degree when stored
+     * @param low Low temperature, rounded to a tenth of a degree when stored
+     * @param pressure Pressure in hPa, rounded to a tenth when stored
+     * @param humidity Humidity in percent
+     */
+    public HistoricalForecast(long date, long issuedDate, double high, double low, double pressure, int humidity) {
+        this.date = date;
+        this.issuedDate = issuedDate;
+        this.high = high;
+        this.low = low;
+        this.pressure = pressure;
+        this.humidity = humidity;
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public long getIssuedDate() {
+        return issuedDate;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getPressure() {
+        return pressure;
+    }
+
+    public int getHumidity() {
+        return humidity;
+    }
+}
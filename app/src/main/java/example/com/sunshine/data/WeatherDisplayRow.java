@@ -0,0 +1,95 @@
+package example.com.sunshine.data;
+
+import android.content.Context;
+
+import example.com.sunshine.util.SunshineDateUtils;
+import example.com.sunshine.util.SunshineWeatherUtils;
+
+/**
+ * A forecast day formatted for display, next to the raw values it was formatted from. Rows are
+ * built once per refresh so binding one is only a matter of reading its fields.
+ */
+public class WeatherDisplayRow {
+
+    private final long date;
+    private final int weatherId;
+    private final double high;
+    private final double low;
+
+    private final String friendlyDate;
+    private final String condition;
+    private final String highLow;
+    private final int iconResourceId;
+
+    private WeatherDisplayRow(long date, int weatherId, double high, double low, String friendlyDate,
+                              String condition, String highLow, int iconResourceId) {
+        this.date = date;
+        this.weatherId = weatherId;
+        this.high = high;
+        this.low = low;
+        this.friendlyDate = friendlyDate;
+        this.condition = condition;
+        this.highLow = highLow;
+        this.iconResourceId = iconResourceId;
+    }
+
+    /**
+     * Formats a forecast day for the current locale, units, time zone and day.
+     *
+     * @param context Android Context to access preferences and resources
+     * @param date The normalized UTC date of the forecast
+     * @param weatherId Weather condition id from the OpenWeatherMap API response
+     * @param high High temperature in the units returned by the server
+     * @param low Low temperature in the units returned by the server
+     * @return The display-ready row
+     */
+    public static WeatherDisplayRow materialize(Context context, long date, int weatherId, double high, double low) {
+        return new WeatherDisplayRow(date, weatherId, high, low,
+                SunshineDateUtils.getFriendlyDateString(context, date, false),
+                SunshineWeatherUtils.getStringForWeatherCondition(context, weatherId),
+                SunshineWeatherUtils.formatHighLow(context, high, low),
+                SunshineWeatherUtils.getIconResourceForWeatherCondition(weatherId));
+    }
+
+    /**
+     * Formats the same forecast day again, e.g after the locale or the units changed.
+     *
+     * @param context Android Context to access preferences and resources
+     * @return A new row built from the raw values of this one
+     */
+    public WeatherDisplayRow rematerialize(Context context) {
+        return materialize(context, date, weatherId, high, low);
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public int getWeatherId() {
+        return weatherId;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public String getFriendlyDate() {
+        return friendlyDate;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public String getHighLow() {
+        return highLow;
+    }
+
+    public int getIconResourceId() {
+        return iconResourceId;
+    }
+}
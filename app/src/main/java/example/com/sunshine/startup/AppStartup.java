@@ -0,0 +1,249 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the registered {@link StartupInitializer}s in dependency order. Only {@code MAIN}
+ * initializers, and whatever they depend on, run on the thread calling {@link #start(Executor)};
+ * {@code BACKGROUND} ones are handed to an executor and {@code LAZY} ones wait for their first
+ * {@link #get(String)}.
+ *
+ * Asking for a value that is still being created on another thread blocks until it is ready, so
+ * callers never see a half-initialized value.
+ */
+public class AppStartup {
+
+    private final Context context;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private volatile boolean started;
+    private volatile long mainThreadNanos;
+
+    /**
+     * @param context The application context handed to every initializer
+     */
+    public AppStartup(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Registers an initializer. Must be called before {@link #start(Executor)}.
+     *
+     * @param initializer The initializer to register
+     */
+    public synchronized void register(StartupInitializer<?> initializer) {
+        if (started) {
+            throw new IllegalStateException("Cannot register " + initializer.getName() + " after start");
+        }
+
+        if (nodes.containsKey(initializer.getName())) {
+            throw new IllegalArgumentException("Duplicate initializer: " + initializer.getName());
+        }
+
+        nodes.put(initializer.getName(), new Node(initializer));
+    }
+
+    /**
+     * Runs the main thread initializers on the calling thread and schedules the background ones.
+     *
+     * @param backgroundExecutor Executor running the {@code BACKGROUND} initializers
+     */
+    public void start(Executor backgroundExecutor) {
+        List<Node> ordered = prepare();
+        long begin = System.nanoTime();
+
+        for (Node node : ordered) {
+            if (node.initializer.getMode() == StartupInitializer.Mode.MAIN) {
+                node.get();
+            }
+        }
+
+        mainThreadNanos = System.nanoTime() - begin;
+
+        for (final Node node : ordered) {
+            if (node.initializer.getMode() == StartupInitializer.Mode.BACKGROUND) {
+                backgroundExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            node.get();
+                        } catch (RuntimeException e) {
+                            /* The failure is kept in the node and rethrown to whoever asks for it */
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Runs every initializer on the calling thread, regardless of its mode. This is what startup
+     * looks like without the orchestrator and is used as the baseline when measuring it.
+     */
+    public void startEagerly() {
+        List<Node> ordered = prepare();
+        long begin = System.nanoTime();
+
+        for (Node node : ordered) {
+            node.get();
+        }
+
+        mainThreadNanos = System.nanoTime() - begin;
+    }
+
+    /**
+     * Returns the value of an initializer, running it on the calling thread if it has not run yet
+     * or waiting for it if it is running on another thread.
+     *
+     * @param name Name of the initializer
+     * @param <T> Type of the value
+     * @return The initialized value
+     * @throws IllegalStateException If the initializer failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name) {
+        Node node;
+
+        synchronized (this) {
+            node = nodes.get(name);
+        }
+
+        if (node == null) {
+            throw new IllegalArgumentException("Unknown initializer: " + name);
+        }
+
+        if (!started) {
+            throw new IllegalStateException("Startup has not started, cannot get " + name);
+        }
+
+        return (T) node.get();
+    }
+
+    /**
+     * @return Time spent running initializers on the thread that called start, in milliseconds
+     */
+    public long getMainThreadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mainThreadNanos);
+    }
+
+    /**
+     * @return A one line summary of how long each finished initializer took and where it ran
+     */
+    public synchronized String getReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "main thread %dms:", getMainThreadMillis()));
+
+        for (Node node : nodes.values()) {
+            if (node.done) {
+                builder.append(String.format(Locale.US, " %s=%.1fms(%s)",
+                        node.initializer.getName(), node.durationNanos / 1e6, node.threadName));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Checks that every dependency exists and that there are no cycles.
+     *
+     * @return The nodes in dependency order
+     */
+    private synchronized List<Node> prepare() {
+        if (started) {
+            throw new IllegalStateException("Startup already started");
+        }
+
+        started = true;
+
+        List<Node> ordered = new ArrayList<>(nodes.size());
+        Set<String> visited = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+
+        for (Node node : nodes.values()) {
+            visit(node, visited, visiting, ordered);
+        }
+
+        return ordered;
+    }
+
+    private void visit(Node node, Set<String> visited, Set<String> visiting, List<Node> ordered) {
+        String name = node.initializer.getName();
+
+        if (visited.contains(name)) {
+            return;
+        }
+
+        if (!visiting.add(name)) {
+            throw new IllegalStateException("Initializer dependency cycle through " + name);
+        }
+
+        for (String dependency : node.initializer.getDependencies()) {
+            Node dependencyNode = nodes.get(dependency);
+
+            if (dependencyNode == null) {
+                throw new IllegalStateException(name + " depends on unknown initializer " + dependency);
+            }
+
+            node.dependencies.add(dependencyNode);
+            visit(dependencyNode, visited, visiting, ordered);
+        }
+
+        visiting.remove(name);
+        visited.add(name);
+        ordered.add(node);
+    }
+
+    private class Node {
+
+        final StartupInitializer<?> initializer;
+        final List<Node> dependencies = new ArrayList<>();
+        volatile boolean done;
+        Object value;
+        Exception failure;
+        long durationNanos;
+        String threadName;
+
+        Node(StartupInitializer<?> initializer) {
+            this.initializer = initializer;
+        }
+
+        /*
+         * Locks are only ever taken from a node towards its dependencies, and the graph has no
+         * cycles, so two threads cannot wait on each other.
+         */
+        synchronized Object get() {
+            if (!done) {
+                for (Node dependency : dependencies) {
+                    dependency.get();
+                }
+
+                long begin = System.nanoTime();
+
+                try {
+                    value = initializer.create(context, AppStartup.this);
+                } catch (Exception e) {
+                    failure = e;
+                }
+
+                durationNanos = System.nanoTime() - begin;
+                threadName = Thread.currentThread().getName();
+                done = true;
+            }
+
+            if (failure != null) {
+                throw new IllegalStateException("Initializer " + initializer.getName() + " failed", failure);
+            }
+
+            return value;
+        }
+    }
+}
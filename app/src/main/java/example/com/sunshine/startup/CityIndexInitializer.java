@@ -0,0 +1,64 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+
+import example.com.sunshine.data.City;
+import example.com.sunshine.data.CityIndex;
+
+/**
+ * Maps the bundled city index the first time autocomplete needs it. The asset is stored
+ * uncompressed (see aaptOptions in build.gradle) so it can be mapped straight out of the APK.
+ */
+public class CityIndexInitializer extends StartupInitializer<CityIndex> {
+
+    public static final String NAME = "city_index";
+    public static final String ASSET_NAME = "cities.idx";
+
+    public CityIndexInitializer() {
+        super(NAME, Mode.LAZY);
+    }
+
+    @Override
+    protected CityIndex create(Context context, AppStartup startup) throws Exception {
+        AssetFileDescriptor descriptor;
+
+        try {
+            descriptor = context.getAssets().openFd(ASSET_NAME);
+        } catch (FileNotFoundException e) {
+            /* openFd also fails on a compressed asset, which is a build problem rather than a missing index */
+            if (Arrays.asList(context.getAssets().list("")).contains(ASSET_NAME)) {
+                throw e;
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            CityIndex.write(Collections.<City>emptyList(), outputStream);
+            return new CityIndex(ByteBuffer.wrap(outputStream.toByteArray()));
+        }
+
+        FileInputStream inputStream = null;
+
+        try {
+            inputStream = descriptor.createInputStream();
+            FileChannel channel = inputStream.getChannel();
+
+            /* The mapping stays valid once the stream and its channel are closed */
+            return new CityIndex(channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength()));
+        } finally {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+
+            descriptor.close();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+
+import example.com.sunshine.data.DisplayRowCache;
+
+/**
+ * Creates the cache of display rows the first time the sync or the UI needs it.
+ */
+public class DisplayRowCacheInitializer extends StartupInitializer<DisplayRowCache> {
+
+    public static final String NAME = "display_row_cache";
+
+    public DisplayRowCacheInitializer() {
+        super(NAME, Mode.LAZY);
+    }
+
+    @Override
+    protected DisplayRowCache create(Context context, AppStartup startup) {
+        return new DisplayRowCache();
+    }
+}
@@ -0,0 +1,41 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import example.com.sunshine.data.ForecastHistory;
+
+/**
+ * Loads the forecast history from internal storage. Nothing on the first frame needs it, so it
+ * is read in the background.
+ */
+public class ForecastHistoryInitializer extends StartupInitializer<ForecastHistory> {
+
+    public static final String NAME = "forecast_history";
+    public static final String FILE_NAME = "forecast_history.bin";
+
+    public ForecastHistoryInitializer() {
+        super(NAME, Mode.BACKGROUND);
+    }
+
+    @Override
+    protected ForecastHistory create(Context context, AppStartup startup) throws Exception {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+
+        if (!file.exists()) {
+            return new ForecastHistory();
+        }
+
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+
+        try {
+            return ForecastHistory.readFrom(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A piece of application state that has to be created before it can be used, such as a database
+ * helper or a formatter. Initializers are registered with {@link AppStartup}, which decides when
+ * and on which thread they run.
+ *
+ * @param <T> Type of the value created by the initializer
+ */
+public abstract class StartupInitializer<T> {
+
+    /**
+     * When an initializer runs.
+     */
+    public enum Mode {
+        /** On the main thread, before the first frame. Keep these to the bare minimum. */
+        MAIN,
+        /** On the background executor, right after the main thread initializers. */
+        BACKGROUND,
+        /** On whichever thread first asks for the value. */
+        LAZY
+    }
+
+    private final String name;
+    private final Mode mode;
+    private final List<String> dependencies;
+
+    /**
+     * @param name Unique name used to look the value up
+     * @param mode When the initializer runs
+     * @param dependencies Names of the initializers that must run before this one
+     */
+    protected StartupInitializer(String name, Mode mode, String... dependencies) {
+        this.name = name;
+        this.mode = mode;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Creates the value. Dependencies are guaranteed to be initialized and can be fetched with
+     * {@link AppStartup#get(String)}.
+     *
+     * @param context The application context
+     * @param startup The orchestrator running this initializer
+     * @return The initialized value
+     * @throws Exception If the value cannot be created
+     */
+    protected abstract T create(Context context, AppStartup startup) throws Exception;
+}
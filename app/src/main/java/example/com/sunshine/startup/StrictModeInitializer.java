@@ -0,0 +1,42 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+import android.os.StrictMode;
+
+import java.io.File;
+
+import example.com.sunshine.util.MainThreadGuard;
+
+/**
+ * Debug builds only: turns on StrictMode and the {@link MainThreadGuard}, so disk and network
+ * access or slow parsing on the main thread shows up in logcat and in the violation report.
+ * Runs on the main thread before anything else, since StrictMode thread policies are per thread.
+ */
+public class StrictModeInitializer extends StartupInitializer<File> {
+
+    public static final String NAME = "strict_mode";
+    public static final String REPORT_FILE_NAME = "main_thread_violations.txt";
+
+    public StrictModeInitializer() {
+        super(NAME, Mode.MAIN);
+    }
+
+    @Override
+    protected File create(Context context, AppStartup startup) {
+        File reportFile = new File(context.getFilesDir(), REPORT_FILE_NAME);
+
+        /* Built on the platform policy, so network on the main thread still throws as in release */
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder(StrictMode.getThreadPolicy())
+                .detectAll()
+                .penaltyLog()
+                .penaltyDeathOnNetwork()
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectAll()
+                .penaltyLog()
+                .build());
+
+        MainThreadGuard.enable(reportFile, false);
+        return reportFile;
+    }
+}
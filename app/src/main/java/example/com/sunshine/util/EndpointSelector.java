@@ -0,0 +1,397 @@
+package example.com.sunshine.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spreads forecast requests over several equivalent weather endpoints.
+ *
+ * Every request goes to the endpoint with the best recent latency and error rate. If it has not
+ * answered after that endpoint's p95 latency, the same request is sent to the next endpoint and
+ * whichever answers first wins. An endpoint failing {@link #setFailureThreshold(int)} times in a
+ * row is skipped until its circuit breaker lets a single trial request through again. While
+ * every circuit is open, a fetch fails at once without sending anything.
+ *
+ * A response whose "cod" is a 5xx counts as a failure, since another endpoint may well answer it.
+ * Other codes, such as 404 for an unknown city, are returned as they are. A fetch gives up after
+ * {@link #setDeadlineMillis(long)}, even if every endpoint is still stalled.
+ */
+public class EndpointSelector {
+
+    private static final int WINDOW_SIZE = 64;
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 500;
+    private static final long MAX_HEDGE_DELAY_MILLIS = 2000;
+    private static final Pattern MESSAGE_CODE = Pattern.compile("\"cod\"\\s*:\\s*\"?(\\d+)");
+
+    private final ExecutorService executor;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    private long minHedgeDelayMillis = 50;
+    private int failureThreshold = 3;
+    private long openMillis = TimeUnit.SECONDS.toMillis(30);
+    private long deadlineMillis = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * @param executor Executor running the requests; it needs one thread per endpoint per request
+     * @param baseUrls Base URLs of the endpoints, in order of preference while nothing is known
+     */
+    public EndpointSelector(ExecutorService executor, String... baseUrls) {
+        this.executor = executor;
+
+        for (String baseUrl : baseUrls) {
+            endpoints.add(new Endpoint(baseUrl));
+        }
+    }
+
+    /**
+     * @param minHedgeDelayMillis Shortest delay before a request is hedged, however fast the endpoint
+     */
+    public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+    }
+
+    /**
+     * @param failureThreshold Consecutive failures that open an endpoint's circuit breaker
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * @param openMillis How long an open circuit breaker keeps an endpoint out of rotation
+     */
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @param deadlineMillis How long a fetch waits for an answer from any endpoint
+     */
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Fetches the query from the best endpoint, hedging to the next one when it is slow and
+     * failing over when it errors.
+     *
+     * @param query Encoded query string, without the leading "?"
+     * @return The body of the first successful response
+     * @throws IOException If every endpoint tried failed, every circuit is open, or none answered
+     * before the deadline
+     */
+    public String fetch(final String query) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        List<Endpoint> candidates = rankEndpoints(System.currentTimeMillis());
+        CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<String>> futures = new ArrayList<>(candidates.size());
+        IOException lastFailure = null;
+        int next = submitNext(candidates, 0, query, completionService, futures);
+
+        if (next < 0) {
+            /* Every endpoint is known to be failing, so fail fast rather than wait out its timeouts */
+            throw new IOException("Every weather endpoint is failing, retry after " + getRetryAfterMillis() + "ms");
+        }
+
+        int outstanding = 1;
+
+        try {
+            while (outstanding > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+                if (remaining <= 0) {
+                    throw new IOException("No weather endpoint answered within " + deadlineMillis + "ms");
+                }
+
+                boolean hedging = next < candidates.size();
+                long delay = hedging ? Math.min(remaining, candidates.get(next - 1).getHedgeDelayMillis()) : remaining;
+                Future<String> completed = completionService.poll(delay, TimeUnit.MILLISECONDS);
+
+                if (completed == null) {
+                    if (!hedging || delay == remaining) {
+                        /* Nothing to hedge to, or the deadline is up */
+                        continue;
+                    }
+
+                    /* The current endpoint is slower than its usual p95, hedge */
+                    int hedged = submitNext(candidates, next, query, completionService, futures);
+
+                    if (hedged < 0) {
+                        next = candidates.size();
+                    } else {
+                        next = hedged;
+                        outstanding++;
+                    }
+
+                    continue;
+                }
+
+                outstanding--;
+
+                try {
+                    return completed.get();
+                } catch (ExecutionException e) {
+                    lastFailure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause()
+                            : new IOException(e.getCause());
+
+                    int failedOver = submitNext(candidates, next, query, completionService, futures);
+
+                    if (failedOver < 0) {
+                        next = candidates.size();
+                    } else {
+                        next = failedOver;
+                        outstanding++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a weather endpoint", e);
+        } finally {
+            /* Requests already running are left to finish so their latency is still recorded */
+            for (Future<String> future : futures) {
+                future.cancel(false);
+            }
+        }
+
+        throw lastFailure;
+    }
+
+    /**
+     * Returns the endpoints whose circuit may let a request through, best first. Endpoints due a
+     * half-open trial come before the others, or a recovered endpoint ranked below a healthy one
+     * would never be tried again. Nothing is acquired here, see {@link #submitNext}.
+     */
+    private List<Endpoint> rankEndpoints(long now) {
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        final Map<Endpoint, Double> scores = new HashMap<>();
+
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                available.add(endpoint);
+                scores.put(endpoint, endpoint.isClosed() ? endpoint.getScore() : -1);
+            }
+        }
+
+        Collections.sort(available, new Comparator<Endpoint>() {
+            @Override
+            public int compare(Endpoint first, Endpoint second) {
+                return Double.compare(scores.get(first), scores.get(second));
+            }
+        });
+
+        return available;
+    }
+
+    /**
+     * Submits the query to the first candidate from {@code next} on whose circuit breaker lets it
+     * through. The half-open trial is only taken here, once a request is really sent, so an
+     * endpoint that is skipped keeps its trial for a later request.
+     *
+     * @return Index of the candidate after the one submitted to, or -1 if none would take it
+     */
+    private int submitNext(List<Endpoint> candidates, int next, String query,
+                           CompletionService<String> completionService, List<Future<String>> futures) {
+        for (int i = next; i < candidates.size(); i++) {
+            Endpoint endpoint = candidates.get(i);
+
+            if (endpoint.tryAcquire(System.currentTimeMillis())) {
+                futures.add(completionService.submit(newRequest(endpoint, query)));
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Milliseconds until the first open circuit is due its trial
+     */
+    private long getRetryAfterMillis() {
+        long openUntil = Long.MAX_VALUE;
+
+        for (Endpoint endpoint : endpoints) {
+            openUntil = Math.min(openUntil, endpoint.getOpenUntil());
+        }
+
+        return Math.max(0, openUntil - System.currentTimeMillis());
+    }
+
+    private Callable<String> newRequest(final Endpoint endpoint, final String query) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                long begin = System.nanoTime();
+
+                try {
+                    String response = NetworkUtils.getResponseFromHttpUrl(new URL(endpoint.baseUrl + "?" + query));
+
+                    if (response == null) {
+                        throw new IOException("Empty response from " + endpoint.baseUrl);
+                    }
+
+                    int messageCode = getMessageCode(response);
+
+                    if (messageCode >= 500) {
+                        throw new IOException("Endpoint " + endpoint.baseUrl + " reported cod " + messageCode);
+                    }
+
+                    endpoint.recordSuccess(System.nanoTime() - begin);
+                    return response;
+                } catch (IOException e) {
+                    endpoint.recordFailure(System.nanoTime() - begin);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads the "cod" of a response without parsing the whole JSON.
+     *
+     * @param response The body of a response
+     * @return The message code, or 200 if the response does not carry one near its start
+     */
+    static int getMessageCode(String response) {
+        Matcher matcher = MESSAGE_CODE.matcher(response);
+        matcher.region(0, Math.min(response.length(), 512));
+
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 200;
+    }
+
+    /**
+     * Latency and error history of a single endpoint, plus its circuit breaker.
+     */
+    private class Endpoint {
+
+        final String baseUrl;
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private final boolean[] failures = new boolean[WINDOW_SIZE];
+        private int samples;
+        private int consecutiveFailures;
+        private long openUntil;
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        synchronized boolean isClosed() {
+            return consecutiveFailures < failureThreshold;
+        }
+
+        /**
+         * Returns true if the circuit is closed or due a trial, without taking the trial.
+         */
+        synchronized boolean isAvailable(long now) {
+            return isClosed() || now >= openUntil;
+        }
+
+        /**
+         * Returns true if the circuit is closed. Once an open circuit has waited long enough, a
+         * single caller gets a trial and the circuit stays open for everyone else until the trial
+         * succeeds or another open period has gone by. Only call this when a request is sent.
+         */
+        synchronized boolean tryAcquire(long now) {
+            if (isClosed()) {
+                return true;
+            }
+
+            if (now < openUntil) {
+                return false;
+            }
+
+            openUntil = now + openMillis;
+            return true;
+        }
+
+        synchronized long getOpenUntil() {
+            return openUntil;
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            record(latencyNanos, false);
+            consecutiveFailures = 0;
+        }
+
+        synchronized void recordFailure(long latencyNanos) {
+            record(latencyNanos, true);
+            consecutiveFailures++;
+
+            if (consecutiveFailures >= failureThreshold) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+        private void record(long latencyNanos, boolean failed) {
+            latencies[samples % WINDOW_SIZE] = latencyNanos;
+            failures[samples % WINDOW_SIZE] = failed;
+            samples++;
+        }
+
+        /**
+         * @return The p95 latency in milliseconds, or -1 without any sample
+         */
+        synchronized long getP95Millis() {
+            int count = Math.min(samples, WINDOW_SIZE);
+
+            if (count == 0) {
+                return -1;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+
+            return TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(0.95 * count) - 1]);
+        }
+
+        synchronized double getErrorRate() {
+            int count = Math.min(samples, WINDOW_SIZE);
+            int failed = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+
+            return count == 0 ? 0 : (double) failed / count;
+        }
+
+        long getHedgeDelayMillis() {
+            long p95 = getP95Millis();
+
+            if (p95 < 0) {
+                return DEFAULT_HEDGE_DELAY_MILLIS;
+            }
+
+            return Math.max(minHedgeDelayMillis, Math.min(MAX_HEDGE_DELAY_MILLIS, p95));
+        }
+
+        /**
+         * Lower is better. Endpoints without history score as if they answered in the default
+         * hedge delay, so they keep their configured order.
+         */
+        double getScore() {
+            long p95 = getP95Millis();
+
+            return (p95 < 0 ? DEFAULT_HEDGE_DELAY_MILLIS : p95) * (1 + 4 * getErrorRate());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package example.com.sunshine.util;
+
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debug-only guard for the entry points that must never run on the main thread, such as network
+ * requests, JSON parsing and storage. Each guarded call is checked against the main looper and
+ * against its time budget; violations are kept in memory and appended to a report file.
+ *
+ * The guard does nothing until {@link #enable(File, boolean)} is called, which only happens in
+ * debug builds, so release builds pay a single volatile read per call.
+ *
+ * Usage:
+ * <pre>
+ * long guard = MainThreadGuard.begin(ENTRY_POINT);
+ * try {
+ *     ...
+ * } finally {
+ *     MainThreadGuard.end(ENTRY_POINT, guard, BUDGET_MILLIS);
+ * }
+ * </pre>
+ */
+public class MainThreadGuard {
+
+    private static final String TAG = MainThreadGuard.class.getSimpleName();
+    private static final int MAX_VIOLATIONS = 200;
+
+    private static final List<Violation> violations = new ArrayList<>();
+    private static volatile boolean enabled;
+    private static volatile boolean failOnMainThread;
+    private static File reportFile;
+    private static ExecutorService reportExecutor;
+
+    /**
+     * Starts guarding entry points.
+     *
+     * @param reportFile File violations are appended to, or null to keep them in memory only
+     * @param failOnMainThread Whether a guarded call on the main thread throws, rather than only
+     * being reported
+     */
+    public static synchronized void enable(File reportFile, boolean failOnMainThread) {
+        MainThreadGuard.reportFile = reportFile;
+        MainThreadGuard.failOnMainThread = failOnMainThread;
+
+        if (reportExecutor == null) {
+            reportExecutor = Executors.newSingleThreadExecutor();
+        }
+
+        enabled = true;
+    }
+
+    /**
+     * @param failOnMainThread Whether a guarded call on the main thread throws
+     */
+    public static void setFailOnMainThread(boolean failOnMainThread) {
+        MainThreadGuard.failOnMainThread = failOnMainThread;
+    }
+
+    /**
+     * Marks the start of a guarded call.
+     *
+     * @param entryPoint Name of the guarded method, e.g "NetworkUtils.getResponseFromHttpUrl"
+     * @return Token to pass to {@link #end(String, long, long)}
+     * @throws IllegalStateException If called on the main thread while failing on main thread
+     */
+    public static long begin(String entryPoint) {
+        if (!enabled) {
+            return -1;
+        }
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            report(new Violation(Violation.KIND_MAIN_THREAD, entryPoint, 0, 0));
+
+            if (failOnMainThread) {
+                throw new IllegalStateException(entryPoint + " called on the main thread");
+            }
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a guarded call and reports it if it went over its budget.
+     *
+     * @param entryPoint Name of the guarded method
+     * @param begin Token returned by {@link #begin(String)}
+     * @param budgetMillis How long the call is allowed to take
+     */
+    public static void end(String entryPoint, long begin, long budgetMillis) {
+        if (begin < 0) {
+            return;
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        if (durationMillis > budgetMillis) {
+            report(new Violation(Violation.KIND_OVER_BUDGET, entryPoint, durationMillis, budgetMillis));
+        }
+    }
+
+    /**
+     * @return The violations reported since the last {@link #clear()}, oldest first
+     */
+    public static synchronized List<Violation> getViolations() {
+        return new ArrayList<>(violations);
+    }
+
+    /**
+     * Forgets the violations kept in memory. The report file is left untouched.
+     */
+    public static synchronized void clear() {
+        violations.clear();
+    }
+
+    private static void report(final Violation violation) {
+        final File file;
+
+        synchronized (MainThreadGuard.class) {
+            if (violations.size() == MAX_VIOLATIONS) {
+                violations.remove(0);
+            }
+
+            violations.add(violation);
+            file = reportFile;
+        }
+
+        Log.w(TAG, violation.toString());
+
+        if (file == null) {
+            return;
+        }
+
+        /* Written in the background, or the report itself would be disk I/O on the main thread */
+        reportExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Writer writer = new FileWriter(file, true);
+
+                    try {
+                        writer.write(violation.toString());
+                        writer.write('\n');
+                    } finally {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not write violation report", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * A guarded call that ran on the main thread or took longer than its budget.
+     */
+    public static class Violation {
+
+        public static final String KIND_MAIN_THREAD = "main_thread";
+        public static final String KIND_OVER_BUDGET = "over_budget";
+
+        private final String kind;
+        private final String entryPoint;
+        private final String threadName;
+        private final long durationMillis;
+        private final long budgetMillis;
+        private final long timestamp;
+        private final String stackTrace;
+
+        Violation(String kind, String entryPoint, long durationMillis, long budgetMillis) {
+            this.kind = kind;
+            this.entryPoint = entryPoint;
+            this.threadName = Thread.currentThread().getName();
+            this.durationMillis = durationMillis;
+            this.budgetMillis = budgetMillis;
+            this.timestamp = System.currentTimeMillis();
+
+            StringWriter stackTrace = new StringWriter();
+            new Throwable().printStackTrace(new PrintWriter(stackTrace));
+            this.stackTrace = stackTrace.toString();
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getEntryPoint() {
+            return entryPoint;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getBudgetMillis() {
+            return budgetMillis;
+        }
+
+        public String getStackTrace() {
+            return stackTrace;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d %s %s on %s, %dms of %dms%n%s",
+                    timestamp, kind, entryPoint, threadName, durationMillis, budgetMillis, stackTrace);
+        }
+    }
+}
@@ -2,14 +2,20 @@ package example.com.sunshine.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class NetworkUtils {
 
     private static final String TAG = NetworkUtils.class.getSimpleName();
-    private static final String WEATHER_URL = "https://andfun-weather.udacity.com/";
+    private static final String WEATHER_URL = "https://andfun-weather.udacity.com";
     private static final String DYNAMIC_WEATHER_URL = WEATHER_URL + "/weather";
     private static final String STATIC_WEATHER_URL = WEATHER_URL + "/staticweather";
     private static final String FORECAST_BASE_URL = STATIC_WEATHER_URL;
@@ -24,6 +30,14 @@ public class NetworkUtils {
     final static String UNITS_PARAM = "units";
     final static String DAYS_PARAM = "cnt";
 
+    private static final long NETWORK_BUDGET_MILLIS = 10000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 8000;
+
+    private static final ExecutorService REQUEST_EXECUTOR = Executors.newCachedThreadPool();
+    private static final EndpointSelector ENDPOINT_SELECTOR =
+            new EndpointSelector(REQUEST_EXECUTOR, FORECAST_BASE_URL, DYNAMIC_WEATHER_URL);
+
     /**
      * Builds the URL used to talk to the weather server using a location. This location is based
      * on the query capabilities of the weather provider that we are using.
@@ -32,7 +46,7 @@ public class NetworkUtils {
      * @return The URL to use to query the weather server.
      */
     public static URL buildUrl(String locationQuery) {
-        return null;
+        return toUrl(FORECAST_BASE_URL + "?" + buildQuery(locationQuery));
     }
 
     /**
@@ -44,7 +58,71 @@ public class NetworkUtils {
      * @return The Url to use to query the weather server.
      */
     public static URL buildUrl(double lat, double lon) {
-        return null;
+        return toUrl(FORECAST_BASE_URL + "?" + buildQuery(lat, lon));
+    }
+
+    /**
+     * Builds the query string sent to the weather server for a location.
+     *
+     * @param locationQuery The location that will be queried for.
+     * @return The encoded query string, without the leading "?"
+     */
+    public static String buildQuery(String locationQuery) {
+        return QUERY_PARAM + "=" + encode(locationQuery) + getCommonQuery();
+    }
+
+    /**
+     * Builds the query string sent to the weather server for a pair of coordinates.
+     *
+     * @param lat The latitude of the location
+     * @param lon The longitude of the location
+     * @return The encoded query string, without the leading "?"
+     */
+    public static String buildQuery(double lat, double lon) {
+        return LAT_PARAM + "=" + String.format(Locale.US, "%.4f", lat)
+                + "&" + LON_PARAM + "=" + String.format(Locale.US, "%.4f", lon)
+                + getCommonQuery();
+    }
+
+    /**
+     * Fetches the forecast for a query from whichever weather endpoint answers first, hedging slow
+     * requests and skipping endpoints that keep failing.
+     *
+     * @param query The query string, as built by one of the buildQuery methods
+     * @return The contents of the HTTP response.
+     * @throws IOException If no endpoint could answer
+     */
+    public static String getForecastResponse(String query) throws IOException {
+        long guard = MainThreadGuard.begin(TAG + ".getForecastResponse");
+
+        try {
+            return ENDPOINT_SELECTOR.fetch(query);
+        } finally {
+            MainThreadGuard.end(TAG + ".getForecastResponse", guard, NETWORK_BUDGET_MILLIS);
+        }
+    }
+
+    private static String getCommonQuery() {
+        return "&" + FORMAT_PARAM + "=" + format
+                + "&" + UNITS_PARAM + "=" + units
+                + "&" + DAYS_PARAM + "=" + numDays;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static URL toUrl(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
@@ -55,9 +133,15 @@ public class NetworkUtils {
      * @throws IOException Related to network and stream reading
      */
     public static String getResponseFromHttpUrl(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        long guard = MainThreadGuard.begin(TAG + ".getResponseFromHttpUrl");
+        HttpURLConnection urlConnection = null;
 
         try {
+            urlConnection = (HttpURLConnection) url.openConnection();
+            /* Without these a stalled server holds the request thread forever */
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            urlConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
+
             InputStream inputStream = urlConnection.getInputStream();
 
             Scanner scanner = new Scanner(inputStream);
@@ -69,7 +153,11 @@ public class NetworkUtils {
                 return null;
             }
         } finally {
-            urlConnection.disconnect();
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+
+            MainThreadGuard.end(TAG + ".getResponseFromHttpUrl", guard, NETWORK_BUDGET_MILLIS);
         }
     }
 }
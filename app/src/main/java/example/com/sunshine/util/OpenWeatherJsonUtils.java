@@ -9,8 +9,13 @@ import org.json.JSONObject;
 
 import java.net.HttpURLConnection;
 
+import example.com.sunshine.data.WeatherDisplayRow;
+
 public class OpenWeatherJsonUtils {
 
+    private static final String TAG = OpenWeatherJsonUtils.class.getSimpleName();
+    private static final long PARSE_BUDGET_MILLIS = 50;
+
     /**
      * This method parses JSON from a web response and returns an array of Strings
      * describing the weather over various days from the forecast.
@@ -20,6 +25,19 @@ public class OpenWeatherJsonUtils {
      * @throws JSONException If JSON data cannot be properly parsed
      */
     public static String[] getSimpleWeatherStringsFromJson(Context context, String forecastJsonStr) throws JSONException {
+        long guard = MainThreadGuard.begin(TAG + ".getSimpleWeatherStringsFromJson");
+
+        try {
+            return parseSimpleWeatherStrings(context, forecastJsonStr);
+        } finally {
+            MainThreadGuard.end(TAG + ".getSimpleWeatherStringsFromJson", guard, PARSE_BUDGET_MILLIS);
+        }
+    }
+
+    /**
+     * Does the parsing for {@link #getSimpleWeatherStringsFromJson(Context, String)}.
+     */
+    private static String[] parseSimpleWeatherStrings(Context context, String forecastJsonStr) throws JSONException {
         final String OWM_LIST = "list";
         final String OWM_TEMPERATURE = "temp";
         final String OWM_MAX = "max";
@@ -70,6 +88,66 @@ public class OpenWeatherJsonUtils {
         return parsedWeatherData;
     }
 
+    /**
+     * This method parses JSON from a web response and formats every day of the forecast for
+     * display, so the rows can be cached and bound without formatting them again.
+     *
+     * @param context Android Context to access preferences and resources
+     * @param forecastJsonStr JSON response from server
+     * @return Display-ready rows, or null if the server reported an error
+     * @throws JSONException If JSON data cannot be properly parsed
+     */
+    public static WeatherDisplayRow[] getDisplayRowsFromJson(Context context, String forecastJsonStr) throws JSONException {
+        long guard = MainThreadGuard.begin(TAG + ".getDisplayRowsFromJson");
+
+        try {
+            return parseDisplayRows(context, forecastJsonStr);
+        } finally {
+            MainThreadGuard.end(TAG + ".getDisplayRowsFromJson", guard, PARSE_BUDGET_MILLIS);
+        }
+    }
+
+    /**
+     * Does the parsing for {@link #getDisplayRowsFromJson(Context, String)}.
+     */
+    private static WeatherDisplayRow[] parseDisplayRows(Context context, String forecastJsonStr) throws JSONException {
+        final String OWM_LIST = "list";
+        final String OWM_TEMPERATURE = "temp";
+        final String OWM_MAX = "max";
+        final String OWM_MIN = "min";
+        final String OWM_WEATHER = "weather";
+        final String OWM_WEATHER_ID = "id";
+        final String OWM_MESSAGE_CODE = "cod";
+        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+        if (forecastJson.has(OWM_MESSAGE_CODE)) {
+            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+
+            if (errorCode != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+        WeatherDisplayRow[] rows = new WeatherDisplayRow[weatherArray.length()];
+        long utcDate = SunshineDateUtils.getUTCDateFromLocal(System.currentTimeMillis());
+        long startDay = SunshineDateUtils.normalizeDate(utcDate);
+
+        for (int i = 0; i < weatherArray.length(); i++) {
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+            long datetimeInMillis = startDay + SunshineDateUtils.DAY_IN_MILLIS * i;
+            int weatherId = dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0).getInt(OWM_WEATHER_ID);
+
+            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+            double high = temperatureObject.getDouble(OWM_MAX);
+            double low = temperatureObject.getDouble(OWM_MIN);
+
+            rows[i] = WeatherDisplayRow.materialize(context, datetimeInMillis, weatherId, high, low);
+        }
+
+        return rows;
+    }
+
     /**
      * Parse the JSON and convert it into ContentValues that can be inserted into our database.
      *
@@ -78,6 +156,12 @@ public class OpenWeatherJsonUtils {
      * @return An array of ContentValues parsed from the JSON.
      */
     public static ContentValues[] getFullWeatherDataFromJson(Context context, String forecastJsonStr) {
-        return null;
+        long guard = MainThreadGuard.begin(TAG + ".getFullWeatherDataFromJson");
+
+        try {
+            return null;
+        } finally {
+            MainThreadGuard.end(TAG + ".getFullWeatherDataFromJson", guard, PARSE_BUDGET_MILLIS);
+        }
     }
 }
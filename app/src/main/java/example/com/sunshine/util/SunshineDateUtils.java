@@ -14,7 +14,7 @@ public class SunshineDateUtils {
     public static final long SECOND_IN_MILLIS = 1000;
     public static final long MINUTE_IN_MILLIS = SECOND_IN_MILLIS * 60;
     public static final long HOUR_IN_MILLIS = MINUTE_IN_MILLIS * 60;
-    public static final long DAY_IN_MILLIS = HOUR_IN_MILLIS / 24;
+    public static final long DAY_IN_MILLIS = HOUR_IN_MILLIS * 24;
 
     /**
      * This method returns the number of days since the epoch (January 01, 1970, 12:00 Midnight UTC)
@@ -0,0 +1,198 @@
+package example.com.sunshine.data;
+
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks city autocomplete matches and measures the index size, load time and query latency
+ * over a synthetic list the size of the bundled one.
+ */
+public class CityIndexTest {
+
+    private static final int CITY_COUNT = 200000;
+    private static final String[] SYLLABLES = {"san", "ta", "mon", "ber", "lin", "ro", "ma", "pa",
+            "ris", "vil", "le", "new", "port", "ka", "to", "do", "ri", "o", "gra", "na", "da", "bu"};
+
+    @Test
+    public void query_ignoresCaseAndAccentsAndRanksByPopulation() throws Exception {
+        CityIndex index = buildIndex(Arrays.asList(
+                new City("S\u00e3o Paulo, BR", -23.55, -46.63, 12000000),
+                new City("Sao Tome, ST", 0.34, 6.73, 70000),
+                new City("Santa Cruz, US", 36.97, -122.03, 64000),
+                new City("Mountain View, US", 37.39, -122.08, 80000),
+                new City("Newark, US", 40.73, -74.17, 280000),
+                new City("New York, US", 40.71, -74.01, 8400000)));
+
+        List<City> matches = index.query("SAO", 5);
+        assertEquals(2, matches.size());
+        assertEquals("S\u00e3o Paulo, BR", matches.get(0).getName());
+        assertEquals(-23.55, matches.get(0).getLatitude(), 0.001);
+
+        assertEquals("Mountain View, US", index.query("mountain  v", 5).get(0).getName());
+        assertEquals(2, index.query("new", 5).size());
+        assertEquals(1, index.query("new ", 5).size());
+        assertEquals(1, index.query("new", 1).size());
+        assertEquals("New York, US", index.query("new", 1).get(0).getName());
+        assertEquals(0, index.query("new", 0).size());
+        assertEquals(0, index.query("par", -1).size());
+        assertEquals(0, index.query("zurich", 5).size());
+        assertEquals(0, index.query("  ", 5).size());
+    }
+
+    @Test
+    public void query_matchesBruteForce() throws Exception {
+        List<City> cities = generateCities(5000, new Random(7));
+        CityIndex index = buildIndex(cities);
+
+        for (String prefix : new String[]{"s", "sa", "san", "ber lin", "ta ma", "o", "por"}) {
+            List<Integer> expected = new ArrayList<>();
+
+            for (City city : cities) {
+                if (CityIndex.normalize(city.getName()).startsWith(CityIndex.normalize(prefix))) {
+                    expected.add(city.getPopulation());
+                }
+            }
+
+            Collections.sort(expected, Collections.reverseOrder());
+
+            /* 10 matches come ready-made for long runs, 11 always scan; both must agree */
+            for (int limit : new int[]{5, 10, 11}) {
+                List<City> matches = index.query(prefix, limit);
+                assertEquals(expected.subList(0, Math.min(limit, expected.size())), getPopulations(matches));
+            }
+
+            assertEquals(getNames(index.query(prefix, 10)), getNames(index.query(prefix, 11)).subList(0,
+                    Math.min(10, expected.size())));
+        }
+    }
+
+    @Test
+    public void benchmark_sizeLoadAndQueryLatency() throws Exception {
+        Random random = new Random(42);
+        List<City> cities = generateCities(CITY_COUNT, random);
+        File file = File.createTempFile("cities", ".idx");
+        file.deleteOnExit();
+
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+
+        try {
+            CityIndex.write(cities, outputStream);
+        } finally {
+            outputStream.close();
+        }
+
+        long loadBegin = System.nanoTime();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        CityIndex index;
+
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            index = new CityIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+
+        long loadNanos = System.nanoTime() - loadBegin;
+        String[] prefixes = new String[2000];
+
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = cities.get(random.nextInt(cities.size())).getName();
+            prefixes[i] = name.substring(0, 1 + random.nextInt(Math.min(6, name.length())));
+        }
+
+        for (String prefix : prefixes) {
+            index.query(prefix, 5);
+        }
+
+        long[] latencies = new long[prefixes.length];
+
+        for (int i = 0; i < prefixes.length; i++) {
+            long begin = System.nanoTime();
+            index.query(prefixes[i], 5);
+            latencies[i] = System.nanoTime() - begin;
+        }
+
+        Arrays.sort(latencies);
+
+        System.out.println(String.format(Locale.US,
+                "cities=%d index=%dKB load=%.2fms query p50=%.1fus p99=%.1fus max=%.1fus",
+                index.size(), file.length() / 1024, loadNanos / 1e6,
+                latencies[latencies.length / 2] / 1e3,
+                latencies[latencies.length * 99 / 100] / 1e3,
+                latencies[latencies.length - 1] / 1e3));
+
+        assertEquals(CITY_COUNT, index.size());
+        assertTrue(latencies[latencies.length * 99 / 100] < 1000000L);
+    }
+
+    private static List<Integer> getPopulations(List<City> cities) {
+        List<Integer> populations = new ArrayList<>(cities.size());
+
+        for (City city : cities) {
+            populations.add(city.getPopulation());
+        }
+
+        return populations;
+    }
+
+    private static List<String> getNames(List<City> cities) {
+        List<String> names = new ArrayList<>(cities.size());
+
+        for (City city : cities) {
+            names.add(city.getName());
+        }
+
+        return names;
+    }
+
+    private static CityIndex buildIndex(List<City> cities) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CityIndex.write(cities, outputStream);
+
+        return new CityIndex(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+
+    private static List<City> generateCities(int count, Random random) {
+        List<City> cities = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+
+                if (s == 0 && random.nextInt(4) == 0) {
+                    name.append(' ');
+                }
+            }
+
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            name.append(", ").append((char) ('A' + random.nextInt(26))).append((char) ('A' + random.nextInt(26)));
+
+            /* Populations follow a long tail, like real place lists */
+            int population = (int) (1000 / Math.pow(random.nextDouble() + 1e-6, 1.2));
+
+            cities.add(new City(name.toString(), random.nextDouble() * 180 - 90,
+                    random.nextDouble() * 360 - 180, population));
+        }
+
+        return cities;
+    }
+}
@@ -0,0 +1,184 @@
+package example.com.sunshine.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import example.com.sunshine.util.SunshineDateUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the encoding of the forecast history and measures its size and range scan latency.
+ */
+public class ForecastHistoryTest {
+
+    private static final long DAY = SunshineDateUtils.DAY_IN_MILLIS;
+    private static final long FIRST_DAY = SunshineDateUtils.normalizeDate(1514764800000L);
+    private static final int FORECAST_DAYS = 14;
+
+    @Test
+    public void query_returnsEveryIssuedForecastForTheRange() {
+        ForecastHistory history = buildHistory(100);
+
+        List<HistoricalForecast> forecasts = history.query(FIRST_DAY + 20 * DAY, FIRST_DAY + 29 * DAY);
+
+        assertEquals(10 * FORECAST_DAYS, forecasts.size());
+
+        for (int i = 0; i < forecasts.size(); i++) {
+            HistoricalForecast forecast = forecasts.get(i);
+            long issuedDay = (forecast.getIssuedDate() - FIRST_DAY) / DAY;
+            long day = (forecast.getDate() - FIRST_DAY) / DAY;
+
+            assertEquals(FIRST_DAY + (20 + i / FORECAST_DAYS) * DAY, forecast.getDate());
+            assertEquals(expectedHigh(issuedDay, day), forecast.getHigh(), 0.05);
+            assertEquals(expectedLow(issuedDay, day), forecast.getLow(), 0.05);
+            assertEquals(expectedPressure(issuedDay, day), forecast.getPressure(), 0.05);
+            assertEquals(expectedHumidity(issuedDay, day), forecast.getHumidity());
+        }
+    }
+
+    @Test
+    public void query_includesForecastsNotSealedYet() {
+        ForecastHistory history = buildHistory(10);
+
+        List<HistoricalForecast> forecasts = history.query(FIRST_DAY + 8 * DAY, FIRST_DAY + 30 * DAY);
+
+        int expected = 0;
+
+        for (int issuedDay = 0; issuedDay < 10; issuedDay++) {
+            for (int day = issuedDay; day < issuedDay + FORECAST_DAYS; day++) {
+                if (day >= 8) {
+                    expected++;
+                }
+            }
+        }
+
+        assertEquals(expected, forecasts.size());
+
+        for (int i = 1; i < forecasts.size(); i++) {
+            assertTrue(forecasts.get(i - 1).getDate() <= forecasts.get(i).getDate());
+        }
+    }
+
+    @Test
+    public void addRefresh_keepsLatestRefreshOfTheSameDay() {
+        ForecastHistory history = buildHistory(10);
+        addRefresh(history, 9);
+
+        List<HistoricalForecast> later = new ArrayList<>(FORECAST_DAYS);
+
+        for (int day = 9; day < 9 + FORECAST_DAYS; day++) {
+            /* Issued a few hours into the same day, so it normalizes to the same issued date */
+            later.add(new HistoricalForecast(FIRST_DAY + day * DAY, 0, 40, 30, 1000, 10));
+        }
+
+        history.addRefresh(FIRST_DAY + 9 * DAY + 6 * SunshineDateUtils.HOUR_IN_MILLIS, later);
+
+        List<HistoricalForecast> forecasts = history.query(FIRST_DAY + 9 * DAY, FIRST_DAY + 9 * DAY);
+
+        assertEquals(10, forecasts.size());
+        assertEquals(FIRST_DAY + 9 * DAY, forecasts.get(9).getIssuedDate());
+        assertEquals(40, forecasts.get(9).getHigh(), 0.05);
+        assertEquals(10, forecasts.get(9).getHumidity());
+        assertEquals(expectedHigh(8, 9), forecasts.get(8).getHigh(), 0.05);
+    }
+
+    @Test
+    public void writeTo_roundTripsThroughReadFrom() throws Exception {
+        ForecastHistory history = buildHistory(200);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        history.writeTo(outputStream);
+
+        ForecastHistory restored = ForecastHistory.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+        addRefresh(restored, 200);
+        addRefresh(history, 200);
+
+        assertEquals(history.size(), restored.size());
+        assertEquals(history.getEncodedSize(), restored.getEncodedSize());
+
+        List<HistoricalForecast> expected = history.query(FIRST_DAY, FIRST_DAY + 220 * DAY);
+        List<HistoricalForecast> actual = restored.query(FIRST_DAY, FIRST_DAY + 220 * DAY);
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDate(), actual.get(i).getDate());
+            assertEquals(expected.get(i).getIssuedDate(), actual.get(i).getIssuedDate());
+            assertEquals(expected.get(i).getHigh(), actual.get(i).getHigh(), 0.05);
+        }
+    }
+
+    @Test
+    public void benchmark_storageSizeAndRangeScans() {
+        int years = 5;
+        ForecastHistory history = buildHistory(365 * years);
+        long lastDay = FIRST_DAY + (365 * years - 1) * DAY;
+
+        for (int i = 0; i < 200; i++) {
+            history.query(lastDay - 364 * DAY, lastDay);
+        }
+
+        long monthScan = timeQuery(history, lastDay - 29 * DAY, lastDay, 1000);
+        long yearScan = timeQuery(history, lastDay - 364 * DAY, lastDay, 200);
+
+        System.out.println(String.format(Locale.US,
+                "forecasts=%d bytes/year=%d bytes/forecast=%.2f 30-day scan=%.1fus 365-day scan=%.1fus",
+                history.size(), history.getEncodedSize() / years,
+                (double) history.getEncodedSize() / history.size(),
+                monthScan / 1e3, yearScan / 1e3));
+
+        assertEquals(365 * FORECAST_DAYS, history.query(lastDay - 364 * DAY, lastDay).size());
+    }
+
+    private static long timeQuery(ForecastHistory history, long start, long end, int iterations) {
+        long begin = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            history.query(start, end);
+        }
+
+        return (System.nanoTime() - begin) / iterations;
+    }
+
+    private static ForecastHistory buildHistory(int refreshes) {
+        ForecastHistory history = new ForecastHistory();
+
+        for (int day = 0; day < refreshes; day++) {
+            addRefresh(history, day);
+        }
+
+        return history;
+    }
+
+    private static void addRefresh(ForecastHistory history, int issuedDay) {
+        List<HistoricalForecast> forecasts = new ArrayList<>(FORECAST_DAYS);
+
+        for (int day = issuedDay; day < issuedDay + FORECAST_DAYS; day++) {
+            forecasts.add(new HistoricalForecast(FIRST_DAY + day * DAY, 0,
+                    expectedHigh(issuedDay, day), expectedLow(issuedDay, day),
+                    expectedPressure(issuedDay, day), expectedHumidity(issuedDay, day)));
+        }
+
+        history.addRefresh(FIRST_DAY + issuedDay * DAY, forecasts);
+    }
+
+    private static double expectedHigh(long issuedDay, long day) {
+        return 15 + 10 * Math.sin(day * 2 * Math.PI / 365) + (day - issuedDay) * 0.3;
+    }
+
+    private static double expectedLow(long issuedDay, long day) {
+        return expectedHigh(issuedDay, day) - 7.5;
+    }
+
+    private static double expectedPressure(long issuedDay, long day) {
+        return 1013.2 + (day % 9) - (day - issuedDay) * 0.1;
+    }
+
+    private static int expectedHumidity(long issuedDay, long day) {
+        return (int) (55 + (day * 7 + issuedDay) % 40);
+    }
+}
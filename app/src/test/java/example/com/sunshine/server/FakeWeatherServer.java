@@ -0,0 +1,357 @@
+package example.com.sunshine.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the andfun-weather server. It answers the same paths ("/staticweather" and
+ * "/weather") and query parameters as the real one, so the network and parsing pipeline can be
+ * exercised and benchmarked without leaving the machine.
+ */
+public class FakeWeatherServer {
+
+    public static final String STATIC_WEATHER_PATH = "/staticweather";
+    public static final String DYNAMIC_WEATHER_PATH = "/weather";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_DAYS = 14;
+    private static final int[] WEATHER_IDS = {800, 801, 802, 500, 501, 211, 600, 741};
+    private static final String[] WEATHER_MAINS = {"Clear", "Clouds", "Clouds", "Rain", "Rain",
+            "Thunderstorm", "Snow", "Fog"};
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile int messageCode = HttpURLConnection.HTTP_OK;
+    private volatile int httpStatus = HttpURLConnection.HTTP_OK;
+    private volatile int forecastDays = -1;
+    private volatile int paddingBytes;
+    private volatile String recordedPayload;
+
+    /**
+     * Starts listening on an ephemeral port of the loopback interface.
+     *
+     * @param threads Number of threads serving requests concurrently
+     * @throws IOException If the server socket cannot be bound
+     */
+    public void start(int threads) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newFixedThreadPool(threads);
+
+        HttpHandler handler = new ForecastHandler();
+        httpServer.createContext(STATIC_WEATHER_PATH, handler);
+        httpServer.createContext(DYNAMIC_WEATHER_PATH, handler);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+    }
+
+    /**
+     * Stops the server and its serving threads.
+     */
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executor.shutdownNow();
+            httpServer = null;
+        }
+    }
+
+    /**
+     * Returns the base URL of the server, e.g "http://127.0.0.1:54321".
+     *
+     * @return The base URL, without a trailing slash
+     */
+    public String getBaseUrl() {
+        InetSocketAddress address = httpServer.getAddress();
+
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    /**
+     * Returns the number of requests answered since the server was started.
+     *
+     * @return The request count
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Delays every response, simulating a slow network or backend.
+     *
+     * @param latencyMillis Fixed delay applied to every response
+     * @param jitterMillis Additional random delay between 0 and this value
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = jitterMillis;
+    }
+
+    /**
+     * Sets the "cod" value reported in the body. Anything other than 200 makes the server answer
+     * with an error body like the real server does for unknown locations.
+     *
+     * @param messageCode The "cod" value to report
+     */
+    public void setMessageCode(int messageCode) {
+        this.messageCode = messageCode;
+    }
+
+    /**
+     * Sets the HTTP status of the responses, to simulate transport level failures.
+     *
+     * @param httpStatus The HTTP status code
+     */
+    public void setHttpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    /**
+     * Forces the number of days in synthetic forecasts regardless of the "cnt" parameter.
+     *
+     * @param forecastDays Number of days, or -1 to honour "cnt"
+     */
+    public void setForecastDays(int forecastDays) {
+        this.forecastDays = forecastDays;
+    }
+
+    /**
+     * Appends an ignored field of the given size to every payload to inflate responses.
+     *
+     * @param paddingBytes Number of padding characters
+     */
+    public void setPaddingBytes(int paddingBytes) {
+        this.paddingBytes = paddingBytes;
+    }
+
+    /**
+     * Serves the given payload verbatim instead of a synthetic forecast.
+     *
+     * @param recordedPayload The payload, or null to go back to synthetic forecasts
+     */
+    public void setRecordedPayload(String recordedPayload) {
+        this.recordedPayload = recordedPayload;
+    }
+
+    /**
+     * Reads a recorded payload from the test resources.
+     *
+     * @param name Name of the resource, e.g "forecast_recorded.json"
+     * @return The content of the resource
+     * @throws IOException If the resource does not exist
+     */
+    public static String loadRecordedPayload(String name) throws IOException {
+        InputStream inputStream = FakeWeatherServer.class.getClassLoader().getResourceAsStream(name);
+
+        if (inputStream == null) {
+            throw new IOException("Missing recorded payload: " + name);
+        }
+
+        try {
+            Scanner scanner = new Scanner(inputStream, "UTF-8");
+            scanner.useDelimiter("\\A");
+
+            return scanner.hasNext() ? scanner.next() : "";
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Builds a forecast payload in the format of the real server.
+     *
+     * @param query Parsed query parameters of the request
+     * @param days Number of days in the forecast
+     * @return The JSON payload
+     */
+    String buildForecast(Map<String, String> query, int days) {
+        boolean metric = !"imperial".equals(query.get("units"));
+        String cityName = query.containsKey("q") ? query.get("q") : "Mountain View";
+        double lat = parseDouble(query.get("lat"), 37.4284);
+        double lon = parseDouble(query.get("lon"), -122.0724);
+        long start = System.currentTimeMillis() / 1000;
+
+        StringBuilder builder = new StringBuilder(256 + days * 256 + paddingBytes);
+        builder.append("{\"city\":{\"id\":5375480,\"name\":\"").append(escape(cityName))
+                .append("\",\"coord\":{\"lon\":").append(lon).append(",\"lat\":").append(lat)
+                .append("},\"country\":\"US\",\"population\":0},\"cod\":\"200\",\"message\":0.01,")
+                .append("\"cnt\":").append(days).append(",\"list\":[");
+
+        for (int i = 0; i < days; i++) {
+            int condition = (int) ((start / 86400 + i) % WEATHER_IDS.length);
+            double min = 8 + (i * 7) % 6;
+            double max = min + 4 + (i * 3) % 5;
+
+            if (!metric) {
+                min = min * 1.8 + 32;
+                max = max * 1.8 + 32;
+            }
+
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append("{\"dt\":").append(start + i * 86400L)
+                    .append(",\"temp\":{\"day\":").append(max - 1)
+                    .append(",\"min\":").append(min)
+                    .append(",\"max\":").append(max)
+                    .append(",\"night\":").append(min)
+                    .append(",\"eve\":").append(max - 2)
+                    .append(",\"morn\":").append(min + 1)
+                    .append("},\"pressure\":").append(1010 + i % 15)
+                    .append(",\"humidity\":").append(60 + (i * 5) % 35)
+                    .append(",\"weather\":[{\"id\":").append(WEATHER_IDS[condition])
+                    .append(",\"main\":\"").append(WEATHER_MAINS[condition])
+                    .append("\",\"description\":\"").append(WEATHER_MAINS[condition].toLowerCase(Locale.US))
+                    .append("\",\"icon\":\"01d\"}],\"speed\":").append(1 + i % 4)
+                    .append(",\"deg\":").append((i * 45) % 360)
+                    .append(",\"clouds\":").append((i * 10) % 100)
+                    .append('}');
+        }
+
+        builder.append(']');
+        appendPadding(builder);
+        builder.append('}');
+
+        return builder.toString();
+    }
+
+    private String buildError(int code) {
+        StringBuilder builder = new StringBuilder(64 + paddingBytes);
+        builder.append("{\"cod\":\"").append(code).append("\",\"message\":\"Error: ").append(code).append('"');
+        appendPadding(builder);
+        builder.append('}');
+
+        return builder.toString();
+    }
+
+    private void appendPadding(StringBuilder builder) {
+        if (paddingBytes > 0) {
+            builder.append(",\"padding\":\"");
+
+            for (int i = 0; i < paddingBytes; i++) {
+                builder.append('x');
+            }
+
+            builder.append('"');
+        }
+    }
+
+    private void sleepForLatency() {
+        long delay = latencyMillis;
+
+        if (latencyJitterMillis > 0) {
+            delay += (long) (Math.random() * latencyJitterMillis);
+        }
+
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+
+            try {
+                if (separator < 0) {
+                    query.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    query.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return query;
+    }
+
+    private static double parseDouble(String value, double fallback) {
+        if (value == null) {
+            return fallback;
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private class ForecastHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            sleepForLatency();
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String body;
+
+            if (messageCode != HttpURLConnection.HTTP_OK) {
+                body = buildError(messageCode);
+            } else if (!query.containsKey("q") && !(query.containsKey("lat") && query.containsKey("lon"))) {
+                body = buildError(HttpURLConnection.HTTP_BAD_REQUEST);
+            } else if (query.containsKey("mode") && !"json".equals(query.get("mode"))) {
+                body = buildError(HttpURLConnection.HTTP_BAD_REQUEST);
+            } else if (recordedPayload != null) {
+                body = recordedPayload;
+            } else {
+                int days = forecastDays > 0 ? forecastDays : (int) parseDouble(query.get("cnt"), DEFAULT_DAYS);
+                /* The real server answers an unusable count with an error, not a broken connection */
+                body = days > 0 ? buildForecast(query, days) : buildError(HttpURLConnection.HTTP_BAD_REQUEST);
+            }
+
+            byte[] bytes = body.getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(httpStatus, bytes.length);
+
+            OutputStream outputStream = exchange.getResponseBody();
+
+            try {
+                outputStream.write(bytes);
+            } finally {
+                outputStream.close();
+            }
+        }
+    }
+}
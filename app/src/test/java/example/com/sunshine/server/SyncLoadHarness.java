@@ -0,0 +1,280 @@
+package example.com.sunshine.server;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import example.com.sunshine.util.NetworkUtils;
+
+/**
+ * Drives concurrent sync runs (fetch followed by decode) against a weather server and records the
+ * latency of each stage, so throughput and tail latency can be compared between changes.
+ *
+ * The fetch stage uses the app's NetworkUtils. The decode stage only walks the JSON: the app's
+ * OpenWeatherJsonUtils also formats dates and high/low strings, which needs Android resources and
+ * cannot run in a JVM test. Decode times are therefore a lower bound for the app's parsing.
+ */
+public class SyncLoadHarness {
+
+    public static final String STAGE_FETCH = "fetch";
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_TOTAL = "total";
+
+    private final String forecastUrl;
+    private final int threads;
+    private final int runsPerThread;
+
+    /**
+     * @param forecastUrl Full forecast URL, including path and query parameters
+     * @param threads Number of concurrent sync runs
+     * @param runsPerThread Number of sync runs each thread performs
+     */
+    public SyncLoadHarness(String forecastUrl, int threads, int runsPerThread) {
+        this.forecastUrl = forecastUrl;
+        this.threads = threads;
+        this.runsPerThread = runsPerThread;
+    }
+
+    /**
+     * Builds the forecast URL the app would send for a location, with the query from NetworkUtils.
+     *
+     * @param baseUrl Base URL of the server, e.g the one of a {@link FakeWeatherServer}
+     * @param path Either {@link FakeWeatherServer#STATIC_WEATHER_PATH} or the dynamic one
+     * @param locationQuery The location to query for
+     * @return The forecast URL
+     */
+    public static String buildForecastUrl(String baseUrl, String path, String locationQuery) {
+        return baseUrl + path + "?" + NetworkUtils.buildQuery(locationQuery);
+    }
+
+    /**
+     * Builds a forecast URL with the parameters NetworkUtils sends but a custom number of days,
+     * which the app does not let callers choose.
+     *
+     * @param baseUrl Base URL of the server, e.g the one of a {@link FakeWeatherServer}
+     * @param path Either {@link FakeWeatherServer#STATIC_WEATHER_PATH} or the dynamic one
+     * @param locationQuery The location to query for
+     * @param days Number of days to request
+     * @return The forecast URL
+     */
+    public static String buildForecastUrl(String baseUrl, String path, String locationQuery, int days) {
+        try {
+            return baseUrl + path
+                    + "?q=" + URLEncoder.encode(locationQuery, "UTF-8")
+                    + "&mode=json&units=metric&cnt=" + days;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs the load and blocks until every sync run has finished.
+     *
+     * @return The per-stage report
+     * @throws Exception If the harness itself fails; failed sync runs are only counted
+     */
+    public Report run() throws Exception {
+        final URL url = new URL(forecastUrl);
+        final long[][] fetch = new long[threads][runsPerThread];
+        final long[][] decode = new long[threads][runsPerThread];
+        final long[][] total = new long[threads][runsPerThread];
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicInteger days = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>(threads);
+        long start = System.nanoTime();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < runsPerThread; i++) {
+                            long begin = System.nanoTime();
+
+                            try {
+                                String response = NetworkUtils.getResponseFromHttpUrl(url);
+                                long fetched = System.nanoTime();
+                                int decodedDays = decodeForecast(response);
+                                long decoded = System.nanoTime();
+
+                                fetch[thread][i] = fetched - begin;
+                                decode[thread][i] = decoded - fetched;
+                                total[thread][i] = decoded - begin;
+                                days.addAndGet(decodedDays);
+                            } catch (IOException | JSONException e) {
+                                errors.incrementAndGet();
+                                fetch[thread][i] = -1;
+                                decode[thread][i] = -1;
+                                total[thread][i] = -1;
+                            }
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Map<String, StageStats> stages = new LinkedHashMap<>();
+        stages.put(STAGE_FETCH, StageStats.of(fetch));
+        stages.put(STAGE_DECODE, StageStats.of(decode));
+        stages.put(STAGE_TOTAL, StageStats.of(total));
+
+        return new Report(threads * runsPerThread, errors.get(), days.get(), elapsed, stages);
+    }
+
+    /**
+     * Reads the same fields as OpenWeatherJsonUtils, without formatting any of them.
+     *
+     * @param forecastJsonStr JSON response from server
+     * @return Number of days decoded
+     * @throws JSONException If the payload is malformed or reports an error
+     */
+    static int decodeForecast(String forecastJsonStr) throws JSONException {
+        if (forecastJsonStr == null) {
+            throw new JSONException("Empty response");
+        }
+
+        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+        if (forecastJson.has("cod") && forecastJson.getInt("cod") != 200) {
+            throw new JSONException("Server reported cod " + forecastJson.getInt("cod"));
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray("list");
+
+        for (int i = 0; i < weatherArray.length(); i++) {
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+            dayForecast.getJSONArray("weather").getJSONObject(0).getString("main");
+
+            JSONObject temperatureObject = dayForecast.getJSONObject("temp");
+            temperatureObject.getDouble("max");
+            temperatureObject.getDouble("min");
+        }
+
+        return weatherArray.length();
+    }
+
+    /**
+     * Latency distribution of a single stage, in nanoseconds.
+     */
+    public static class StageStats {
+
+        public final int samples;
+        public final long p50;
+        public final long p99;
+        public final long max;
+
+        StageStats(int samples, long p50, long p99, long max) {
+            this.samples = samples;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        static StageStats of(long[][] perThread) {
+            int count = 0;
+
+            for (long[] samples : perThread) {
+                for (long sample : samples) {
+                    if (sample >= 0) {
+                        count++;
+                    }
+                }
+            }
+
+            long[] sorted = new long[count];
+            int index = 0;
+
+            for (long[] samples : perThread) {
+                for (long sample : samples) {
+                    if (sample >= 0) {
+                        sorted[index++] = sample;
+                    }
+                }
+            }
+
+            if (count == 0) {
+                return new StageStats(0, 0, 0, 0);
+            }
+
+            Arrays.sort(sorted);
+
+            return new StageStats(count, percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[count - 1]);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+        }
+    }
+
+    /**
+     * Result of a harness run.
+     */
+    public static class Report {
+
+        public final int runs;
+        public final int errors;
+        public final int daysDecoded;
+        public final long elapsedNanos;
+        public final Map<String, StageStats> stages;
+
+        Report(int runs, int errors, int daysDecoded, long elapsedNanos, Map<String, StageStats> stages) {
+            this.runs = runs;
+            this.errors = errors;
+            this.daysDecoded = daysDecoded;
+            this.elapsedNanos = elapsedNanos;
+            this.stages = stages;
+        }
+
+        /**
+         * @return Successful sync runs per second
+         */
+        public double getThroughput() {
+            return (runs - errors) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.US, "runs=%d errors=%d throughput=%.1f/s%n",
+                    runs, errors, getThroughput()));
+
+            for (Map.Entry<String, StageStats> entry : stages.entrySet()) {
+                StageStats stats = entry.getValue();
+                builder.append(String.format(Locale.US, "  %-6s p50=%.3fms p99=%.3fms max=%.3fms%n",
+                        entry.getKey(), stats.p50 / 1e6, stats.p99 / 1e6, stats.max / 1e6));
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package example.com.sunshine.server;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+
+import example.com.sunshine.util.NetworkUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exercises the local weather server and reports throughput and per-stage latency of the sync
+ * pipeline against it.
+ */
+public class SyncLoadHarnessTest {
+
+    private FakeWeatherServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeWeatherServer();
+        server.start(8);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void syntheticForecast_honoursQueryParameters() throws Exception {
+        String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                FakeWeatherServer.DYNAMIC_WEATHER_PATH, "94043, USA", 7);
+        JSONObject forecast = new JSONObject(NetworkUtils.getResponseFromHttpUrl(new URL(url)));
+
+        assertEquals(200, forecast.getInt("cod"));
+        assertEquals(7, forecast.getJSONArray("list").length());
+        assertEquals("94043, USA", forecast.getJSONObject("city").getString("name"));
+    }
+
+    @Test
+    public void recordedPayload_isServedVerbatim() throws Exception {
+        String recorded = FakeWeatherServer.loadRecordedPayload("forecast_recorded.json");
+        server.setRecordedPayload(recorded);
+
+        String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                FakeWeatherServer.STATIC_WEATHER_PATH, "Mountain View");
+
+        assertEquals(recorded.trim(), NetworkUtils.getResponseFromHttpUrl(new URL(url)).trim());
+    }
+
+    @Test
+    public void messageCode_isReportedInBody() throws Exception {
+        server.setMessageCode(404);
+
+        String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                FakeWeatherServer.STATIC_WEATHER_PATH, "Nowhere");
+        JSONObject forecast = new JSONObject(NetworkUtils.getResponseFromHttpUrl(new URL(url)));
+
+        assertEquals(404, forecast.getInt("cod"));
+        assertFalse(forecast.has("list"));
+    }
+
+    @Test
+    public void invalidDayCount_isReportedInBody() throws Exception {
+        for (int days : new int[]{0, -1, -5}) {
+            String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                    FakeWeatherServer.STATIC_WEATHER_PATH, "94043, USA", days);
+            JSONObject forecast = new JSONObject(NetworkUtils.getResponseFromHttpUrl(new URL(url)));
+
+            assertEquals(400, forecast.getInt("cod"));
+        }
+    }
+
+    @Test
+    public void harness_reportsPerStageLatency() throws Exception {
+        server.setLatency(5, 5);
+        server.setPaddingBytes(16 * 1024);
+
+        String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                FakeWeatherServer.STATIC_WEATHER_PATH, "94043, USA");
+        SyncLoadHarness.Report report = new SyncLoadHarness(url, 4, 25).run();
+
+        System.out.print(report);
+
+        assertEquals(0, report.errors);
+        assertEquals(100 * 14, report.daysDecoded);
+        assertEquals(100, server.getRequestCount());
+        assertTrue(report.stages.get(SyncLoadHarness.STAGE_FETCH).p50 >= 5_000_000L);
+        assertTrue(report.stages.get(SyncLoadHarness.STAGE_TOTAL).p99
+                >= report.stages.get(SyncLoadHarness.STAGE_TOTAL).p50);
+    }
+
+    @Test
+    public void harness_countsServerErrors() throws Exception {
+        server.setMessageCode(500);
+
+        String url = SyncLoadHarness.buildForecastUrl(server.getBaseUrl(),
+                FakeWeatherServer.STATIC_WEATHER_PATH, "94043, USA");
+        SyncLoadHarness.Report report = new SyncLoadHarness(url, 2, 5).run();
+
+        assertEquals(10, report.errors);
+        assertEquals(0, report.stages.get(SyncLoadHarness.STAGE_TOTAL).samples);
+    }
+}
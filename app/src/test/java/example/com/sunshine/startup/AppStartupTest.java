@@ -0,0 +1,126 @@
+package example.com.sunshine.startup;
+
+import android.content.Context;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AppStartupTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void start_runsOnlyMainInitializersAndTheirDependenciesInline() {
+        AppStartup startup = new AppStartup(null);
+        startup.register(new Recording("formatter", StartupInitializer.Mode.MAIN, "preferences"));
+        startup.register(new Recording("preferences", StartupInitializer.Mode.LAZY));
+        startup.register(new Recording("database", StartupInitializer.Mode.BACKGROUND));
+        startup.register(new Recording("http", StartupInitializer.Mode.LAZY));
+
+        startup.start(new RecordingExecutor());
+
+        assertEquals("preferences", events.get(0));
+        assertEquals("formatter", events.get(1));
+        assertEquals("scheduled", events.get(2));
+        assertEquals(3, events.size());
+
+        assertEquals("http:value", startup.get("http"));
+        assertEquals("http", events.get(3));
+    }
+
+    @Test
+    public void get_waitsForBackgroundInitializer() throws Exception {
+        AppStartup startup = new AppStartup(null);
+        startup.register(new StartupInitializer<String>("slow", StartupInitializer.Mode.BACKGROUND) {
+            @Override
+            protected String create(Context context, AppStartup startup) throws Exception {
+                TimeUnit.MILLISECONDS.sleep(50);
+                events.add("slow");
+                return "slow:value";
+            }
+        });
+        startup.register(new Recording("user", StartupInitializer.Mode.LAZY, "slow"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            startup.start(executor);
+
+            assertEquals("user:value", startup.get("user"));
+            assertEquals("slow", events.get(0));
+            assertEquals("user", events.get(1));
+            assertEquals(2, events.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void startEagerly_runsEverythingInline() {
+        AppStartup startup = new AppStartup(null);
+        startup.register(new Recording("database", StartupInitializer.Mode.BACKGROUND));
+        startup.register(new Recording("http", StartupInitializer.Mode.LAZY, "database"));
+
+        startup.startEagerly();
+
+        assertEquals(2, events.size());
+        assertTrue(startup.getReport().contains("http="));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_rejectsCycles() {
+        AppStartup startup = new AppStartup(null);
+        startup.register(new Recording("a", StartupInitializer.Mode.LAZY, "b"));
+        startup.register(new Recording("b", StartupInitializer.Mode.LAZY, "a"));
+
+        startup.startEagerly();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void get_rethrowsInitializerFailure() {
+        AppStartup startup = new AppStartup(null);
+        startup.register(new StartupInitializer<String>("broken", StartupInitializer.Mode.LAZY) {
+            @Override
+            protected String create(Context context, AppStartup startup) throws Exception {
+                throw new Exception("broken");
+            }
+        });
+
+        startup.start(new RecordingExecutor());
+        startup.get("broken");
+    }
+
+    private class Recording extends StartupInitializer<String> {
+
+        Recording(String name, Mode mode, String... dependencies) {
+            super(name, mode, dependencies);
+        }
+
+        @Override
+        protected String create(Context context, AppStartup startup) {
+            for (String dependency : getDependencies()) {
+                assertEquals(dependency + ":value", startup.get(dependency));
+            }
+
+            events.add(getName());
+            return getName() + ":value";
+        }
+    }
+
+    private class RecordingExecutor implements Executor {
+
+        @Override
+        public void execute(Runnable command) {
+            events.add("scheduled");
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package example.com.sunshine.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import example.com.sunshine.server.FakeWeatherServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the endpoint selector against two local weather servers, one of which injects slow
+ * responses or errors.
+ */
+public class EndpointSelectorTest {
+
+    private static final String QUERY = "q=94043%2C+USA&mode=json&units=metric&cnt=14";
+
+    private FakeWeatherServer primary;
+    private FakeWeatherServer secondary;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        primary = new FakeWeatherServer();
+        primary.start(8);
+        secondary = new FakeWeatherServer();
+        secondary.start(8);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        primary.stop();
+        secondary.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fetch_hedgesAroundOccasionallySlowEndpoint() throws Exception {
+        EndpointSelector selector = newSelector();
+        long[] single = new long[100];
+        long[] hedged = new long[100];
+
+        for (int i = 0; i < single.length; i++) {
+            /* One request in 25 stalls, as a congested backend would */
+            primary.setLatency(i % 25 == 24 ? 400 : 5, 0);
+            secondary.setLatency(5, 0);
+
+            single[i] = time(new EndpointSelector(executor, primary.getBaseUrl() + FakeWeatherServer.STATIC_WEATHER_PATH));
+            hedged[i] = time(selector);
+        }
+
+        Arrays.sort(single);
+        Arrays.sort(hedged);
+
+        System.out.println(String.format(Locale.US, "single endpoint p50=%dms p99=%dms, hedged p50=%dms p99=%dms",
+                single[49], single[98], hedged[49], hedged[98]));
+
+        assertTrue(single[98] >= 400);
+        assertTrue(hedged[98] < 300);
+    }
+
+    @Test
+    public void fetch_failsOverAndOpensCircuit() throws Exception {
+        EndpointSelector selector = newSelector();
+        selector.setFailureThreshold(1);
+        selector.setOpenMillis(60000);
+        primary.setHttpStatus(503);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(selector.fetch(QUERY));
+        }
+
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(10, secondary.getRequestCount());
+    }
+
+    @Test
+    public void fetch_failsFastWhileEveryCircuitIsOpen() throws Exception {
+        EndpointSelector selector = newSelector();
+        selector.setFailureThreshold(1);
+        selector.setOpenMillis(60000);
+        primary.setHttpStatus(503);
+        secondary.setHttpStatus(503);
+
+        try {
+            selector.fetch(QUERY);
+            fail("Expected both endpoints to fail");
+        } catch (IOException expected) {
+            /* Both circuits are open from here on */
+        }
+
+        int requests = primary.getRequestCount() + secondary.getRequestCount();
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                selector.fetch(QUERY);
+                fail("Expected the fetch to fail without a request");
+            } catch (IOException expected) {
+                /* Nothing was sent */
+            }
+        }
+
+        assertEquals(2, requests);
+        assertEquals(requests, primary.getRequestCount() + secondary.getRequestCount());
+    }
+
+    @Test
+    public void fetch_halfOpenCircuitLetsEndpointBackIn() throws Exception {
+        EndpointSelector selector = newSelector();
+        selector.setFailureThreshold(1);
+        selector.setOpenMillis(100);
+        primary.setMessageCode(500);
+
+        selector.fetch(QUERY);
+        assertEquals(1, secondary.getRequestCount());
+
+        /* The trial request to the primary is the only way left to answer */
+        primary.setMessageCode(200);
+        secondary.setHttpStatus(503);
+        Thread.sleep(150);
+        selector.fetch(QUERY);
+        selector.fetch(QUERY);
+
+        assertEquals(3, primary.getRequestCount());
+        assertEquals(2, secondary.getRequestCount());
+    }
+
+    @Test
+    public void fetch_recoveredEndpointGetsTrialWhileOtherStaysHealthy() throws Exception {
+        EndpointSelector selector = newSelector();
+        /* No hedging, so every request counted below is a ranking decision */
+        selector.setMinHedgeDelayMillis(1000);
+        selector.setFailureThreshold(1);
+        selector.setOpenMillis(100);
+        primary.setHttpStatus(503);
+
+        for (int i = 0; i < 5; i++) {
+            selector.fetch(QUERY);
+        }
+
+        assertEquals(1, primary.getRequestCount());
+
+        /* The secondary keeps answering fine, the primary still has to get its trial */
+        primary.setHttpStatus(200);
+        Thread.sleep(150);
+
+        for (int i = 0; i < 20; i++) {
+            selector.fetch(QUERY);
+        }
+
+        int primaryRequests = primary.getRequestCount();
+        assertTrue(primaryRequests >= 2);
+
+        /* The trial closed the circuit, so the primary takes over at once when needed */
+        secondary.setHttpStatus(503);
+        assertNotNull(selector.fetch(QUERY));
+
+        assertEquals(primaryRequests + 1, primary.getRequestCount());
+    }
+
+    @Test
+    public void fetch_returnsClientErrorsAsTheyAre() throws Exception {
+        EndpointSelector selector = newSelector();
+        primary.setMessageCode(404);
+
+        assertEquals(404, EndpointSelector.getMessageCode(selector.fetch(QUERY)));
+        assertEquals(0, secondary.getRequestCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void fetch_throwsWhenEveryEndpointFails() throws Exception {
+        primary.setHttpStatus(500);
+        secondary.setMessageCode(502);
+
+        newSelector().fetch(QUERY);
+    }
+
+    @Test
+    public void fetch_givesUpAtDeadlineWhenEveryEndpointStalls() throws Exception {
+        EndpointSelector selector = newSelector();
+        selector.setDeadlineMillis(800);
+        primary.setLatency(3000, 0);
+        secondary.setLatency(3000, 0);
+        long begin = System.currentTimeMillis();
+
+        try {
+            /* Hedged to the secondary after 500ms, then nothing is left to try */
+            selector.fetch(QUERY);
+            fail("Expected the fetch to give up");
+        } catch (IOException expected) {
+            /* The deadline, rather than either stalled endpoint, ended the fetch */
+        }
+
+        long elapsed = System.currentTimeMillis() - begin;
+        assertTrue(elapsed >= 750);
+        assertTrue(elapsed < 2000);
+    }
+
+    private EndpointSelector newSelector() {
+        EndpointSelector selector = new EndpointSelector(executor,
+                primary.getBaseUrl() + FakeWeatherServer.STATIC_WEATHER_PATH,
+                secondary.getBaseUrl() + FakeWeatherServer.DYNAMIC_WEATHER_PATH);
+        selector.setMinHedgeDelayMillis(20);
+        return selector;
+    }
+
+    private static long time(EndpointSelector selector) throws IOException {
+        long begin = System.currentTimeMillis();
+        selector.fetch(QUERY);
+        return System.currentTimeMillis() - begin;
+    }
+}
@@ -0,0 +1,23 @@
+package example.com.sunshine.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the URLs sent to the weather server.
+ */
+public class NetworkUtilsTest {
+
+    @Test
+    public void buildUrl_location() {
+        assertEquals("https://andfun-weather.udacity.com/staticweather?q=94043%2C+USA&mode=json&units=metric&cnt=14",
+                NetworkUtils.buildUrl("94043, USA").toString());
+    }
+
+    @Test
+    public void buildUrl_coordinates() {
+        assertEquals("https://andfun-weather.udacity.com/staticweather?lat=37.4000&lon=-122.1000&mode=json&units=metric&cnt=14",
+                NetworkUtils.buildUrl(37.4, -122.1).toString());
+    }
+}